@@ -0,0 +1,98 @@
+package com.ncornette.superinit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Nodes per second cancelled below a running node of a loaded graph, and cloned by retry()
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CancelBenchmark {
+
+    static final int NODES = 10000;
+
+    @Param({"WIDE", "DEEP", "RANDOM"})
+    public Graphs.Shape shape;
+
+    private ExecutorService executor;
+    private List<InitNode> nodes;
+    private InitLoader initLoader;
+    private InitNode runningNode;
+    private CountDownLatch release;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    // Cancelled nodes stay cancelled, a new graph is loaded for each invocation.
+    // The graph waits for a running node, loaded nodes share wide cancellations with the executor.
+    @Setup(Level.Invocation)
+    public void loadGraph() throws InterruptedException {
+        nodes = Graphs.newGraph(shape, NODES);
+        final CountDownLatch started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        runningNode = new InitNode(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        nodes.get(0).dependsOn(runningNode);
+        initLoader = new InitLoader(executor);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        List<InitNode> loadedNodes = new ArrayList<>(nodes);
+        loadedNodes.add(runningNode);
+        initLoader.load(null, loadedNodes);
+        started.await();
+    }
+
+    @TearDown(Level.Invocation)
+    public void releaseGraph() throws InterruptedException {
+        release.countDown();
+        initLoader.awaitTasks();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public List<InitNode> cancel() {
+        // The running node is not cancelled, all the nodes waiting for it are
+        InitNode.cancel(Collections.singleton(runningNode));
+        return nodes;
+    }
+
+    // Same as InitLoader.retry() with the first node in error
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public Collection<InitNode> retryClone() {
+        return InitNode.newNodesWithDescendants(nodes.get(0));
+    }
+}
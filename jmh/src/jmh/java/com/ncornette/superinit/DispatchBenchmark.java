@@ -0,0 +1,80 @@
+package com.ncornette.superinit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Nodes per second executed with no-op tasks, measures the overhead of the loader itself
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DispatchBenchmark {
+
+    static final int NODES = 10000;
+
+    @Param({"WIDE", "DEEP", "RANDOM"})
+    public Graphs.Shape shape;
+
+    @Param({"EAGER", "ON_READY", "CRITICAL_PATH"})
+    public Scheduling scheduling;
+
+    // No-op nodes have the default cost of 1, they are all fused when enabled
+    @Param({"false", "true"})
+    public boolean fusion;
+
+    @Param({"0", "16"})
+    public int inlineDepth;
+
+    private ExecutorService executor;
+    private InitPlan plan;
+    private List<InitNode> nodes;
+
+    @Setup
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        plan = InitPlan.compile(Graphs.newGraph(shape, NODES));
+    }
+
+    // Nodes run once by a loader, a new graph is needed for each load
+    @Setup(Level.Invocation)
+    public void newGraph() {
+        nodes = Graphs.newGraph(shape, NODES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public void load() throws Exception {
+        InitLoader initLoader = new InitLoader(executor);
+        initLoader.setScheduling(scheduling);
+        if (fusion) {
+            initLoader.setFusionCost(1);
+        }
+        initLoader.setInlineDepth(inlineDepth);
+        initLoader.load(null, nodes);
+        initLoader.awaitTasks();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public LoadResult executePlan() throws Exception {
+        return plan.execute(executor).get();
+    }
+}
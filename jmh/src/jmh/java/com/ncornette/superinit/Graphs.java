@@ -0,0 +1,73 @@
+package com.ncornette.superinit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Graphs of no-op nodes used by the benchmarks
+class Graphs {
+
+    static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    enum Shape {
+        // One root with all other nodes depending on it
+        WIDE,
+        // A single chain of nodes
+        DEEP,
+        // Each node depends on up to 3 random previous nodes
+        RANDOM
+    }
+
+    static List<InitNode> newGraph(Shape shape, int size) {
+        switch (shape) {
+            case WIDE:
+                return wide(size);
+            case DEEP:
+                return deep(size);
+            default:
+                return random(size, 42);
+        }
+    }
+
+    static List<InitNode> wide(int size) {
+        List<InitNode> nodes = new ArrayList<>(size);
+        InitNode root = new InitNode(NO_OP);
+        nodes.add(root);
+        for (int i = 1; i < size; i++) {
+            nodes.add(new InitNode(NO_OP).dependsOn(root));
+        }
+        return nodes;
+    }
+
+    static List<InitNode> deep(int size) {
+        List<InitNode> nodes = new ArrayList<>(size);
+        InitNode previous = null;
+        for (int i = 0; i < size; i++) {
+            InitNode node = new InitNode(NO_OP);
+            if (previous != null) {
+                node.dependsOn(previous);
+            }
+            nodes.add(node);
+            previous = node;
+        }
+        return nodes;
+    }
+
+    static List<InitNode> random(int size, long seed) {
+        Random random = new Random(seed);
+        List<InitNode> nodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            InitNode node = new InitNode(NO_OP);
+            int dependencies = i == 0 ? 0 : random.nextInt(Math.min(i, 3) + 1);
+            for (int j = 0; j < dependencies; j++) {
+                node.dependsOn(nodes.get(random.nextInt(i)));
+            }
+            nodes.add(node);
+        }
+        return nodes;
+    }
+}
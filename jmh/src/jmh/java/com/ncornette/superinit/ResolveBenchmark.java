@@ -0,0 +1,48 @@
+package com.ncornette.superinit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Nodes resolved per second by InitLoader.dep_resolve()
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ResolveBenchmark {
+
+    static final int NODES = 10000;
+
+    @Param({"WIDE", "DEEP", "RANDOM"})
+    public Graphs.Shape shape;
+
+    private List<InitNode> nodes;
+
+    @Setup
+    public void setUp() {
+        nodes = Graphs.newGraph(shape, NODES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public List<InitNode> resolve() {
+        List<InitNode> resolved = new ArrayList<>(NODES);
+        InitLoader.dep_resolve(nodes, resolved);
+        return resolved;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public InitPlan compilePlan() {
+        return InitPlan.compile(nodes);
+    }
+}
@@ -0,0 +1,86 @@
+package com.ncornette.superinit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Time to load a wide graph of nodes blocking on I/O, on virtual threads or on a pool of platform threads.
+// Requires Java 21 or later for the VIRTUAL loader.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualThreadBenchmark {
+
+    static final int NODES = 10000;
+    static final int POOL_THREADS = 100;
+
+    public enum Loader {
+        VIRTUAL,
+        POOL
+    }
+
+    @Param({"VIRTUAL", "POOL"})
+    public Loader loader;
+
+    @Param({"EAGER", "ON_READY", "CRITICAL_PATH"})
+    public Scheduling scheduling;
+
+    // A pool of 100 threads needs NODES / 100 * ioMillis at least
+    @Param({"10"})
+    public long ioMillis;
+
+    private List<InitNode> nodes;
+
+    @Setup
+    public void setUp() {
+        if (loader == Loader.VIRTUAL && !InitLoader.virtualThreadsSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later");
+        }
+    }
+
+    // A root node, blocking nodes depending on it, and a node depending on all of them
+    @Setup(Level.Invocation)
+    public void newGraph() {
+        Runnable ioTask = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(ioMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        InitNode root = new InitNode(Graphs.NO_OP);
+        InitNode last = new InitNode(Graphs.NO_OP);
+        nodes = new ArrayList<>(NODES + 2);
+        nodes.add(root);
+        for (int i = 0; i < NODES; i++) {
+            InitNode node = new InitNode(ioTask).dependsOn(root);
+            last.dependsOn(node);
+            nodes.add(node);
+        }
+        nodes.add(last);
+    }
+
+    @Benchmark
+    public LoadResult load() throws Exception {
+        InitLoader initLoader = loader == Loader.VIRTUAL
+                ? InitLoader.newVirtualThreadLoader()
+                : new InitLoader(POOL_THREADS);
+        initLoader.setScheduling(scheduling);
+        LoadResult result = initLoader.loadAsync(nodes).get();
+        initLoader.awaitTermination();
+        return result;
+    }
+}
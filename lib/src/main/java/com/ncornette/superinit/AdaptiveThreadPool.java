@@ -0,0 +1,126 @@
+package com.ncornette.superinit;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Thread pool sized from the CPU time of its tasks: with tasks using the CPU a fraction u of their wall time,
+// cores / u threads keep the cores busy. Tasks are measured with ThreadMXBean, and the core pool size is
+// adjusted between minThreads and maxThreads at most once per window, while the graph runs.
+// Waiting for a dependency counts as blocking, like I/O, the waiting thread doesn't use a core.
+// Threads waiting for a core look blocked too, so a pool already using all the cores never grows,
+// it shrinks one thread per window down to the number of cores instead.
+// java.lang.management is not available on Android, this class is only loaded by adaptive loaders.
+class AdaptiveThreadPool extends ThreadPoolExecutor {
+
+    static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    // Fraction of the cores used by the pool above which it is saturated
+    private static final double SATURATED = 0.9;
+
+    private final ThreadMXBean threadMXBean;
+    private final int minThreads;
+    private final int maxThreads;
+    private final int cores;
+
+    private final ThreadLocal<long[]> taskStart = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong windowCpuNanos = new AtomicLong();
+    private final AtomicLong windowWallNanos = new AtomicLong();
+    // Smoothed fraction of the wall time tasks use the CPU, only changed by the thread closing a window
+    private volatile double utilization = -1;
+
+    AdaptiveThreadPool(int minThreads, int maxThreads, ThreadFactory threadFactory) {
+        super(checkBounds(minThreads, maxThreads), maxThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), threadFactory);
+        this.threadMXBean = threadMXBean();
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.cores = Runtime.getRuntime().availableProcessors();
+    }
+
+    private static int checkBounds(int minThreads, int maxThreads) {
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid thread bounds: min %d, max %d", minThreads, maxThreads));
+        }
+        return minThreads;
+    }
+
+    private static ThreadMXBean threadMXBean() {
+        ThreadMXBean threadMXBean;
+        try {
+            threadMXBean = ManagementFactory.getThreadMXBean();
+        } catch (LinkageError e) {
+            throw new UnsupportedOperationException("Thread CPU time is not available", e);
+        }
+        if (!threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            throw new UnsupportedOperationException("Thread CPU time is not supported");
+        }
+        if (!threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+        return threadMXBean;
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        long[] start = taskStart.get();
+        start[0] = threadMXBean.getCurrentThreadCpuTime();
+        start[1] = System.nanoTime();
+    }
+
+    @Override
+    protected void afterExecute(Runnable task, Throwable error) {
+        long[] start = taskStart.get();
+        long now = System.nanoTime();
+        windowCpuNanos.addAndGet(threadMXBean.getCurrentThreadCpuTime() - start[0]);
+        windowWallNanos.addAndGet(now - start[1]);
+
+        long currentWindowStart = windowStart.get();
+        if (now - currentWindowStart >= WINDOW_NANOS && windowStart.compareAndSet(currentWindowStart, now)) {
+            resize(windowCpuNanos.getAndSet(0), windowWallNanos.getAndSet(0), now - currentWindowStart);
+        }
+    }
+
+    void resize(long cpuNanos, long wallNanos, long windowNanos) {
+        if (wallNanos <= 0) {
+            return;
+        }
+        double windowUtilization = Math.min(1, (double) Math.max(0, cpuNanos) / wallNanos);
+        double current = utilization;
+        utilization = current < 0 ? windowUtilization : (current + windowUtilization) / 2;
+
+        int threads = targetThreads(utilization);
+        int poolSize = getCorePoolSize();
+        if (cpuNanos >= SATURATED * cores * windowNanos) {
+            threads = Math.min(threads, Math.max(Math.min(cores, maxThreads), poolSize - 1));
+            threads = Math.max(threads, minThreads);
+        }
+        if (threads != poolSize) {
+            // Extra threads are started for queued tasks, or stop once idle
+            setCorePoolSize(threads);
+        }
+    }
+
+    int targetThreads(double utilization) {
+        if (utilization <= 0) {
+            return maxThreads;
+        }
+        long threads = Math.round(cores / utilization);
+        return (int) Math.max(minThreads, Math.min(maxThreads, threads));
+    }
+
+    // Fraction of the wall time tasks use the CPU, -1 before the first window
+    double utilization() {
+        return utilization;
+    }
+}
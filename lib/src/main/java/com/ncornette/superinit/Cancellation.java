@@ -0,0 +1,178 @@
+package com.ncornette.superinit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Cancels nodes and all their descendants.
+// Each node is marked cancelled, then claimed once with a CAS on its state,
+// so a node reached by several paths, or by concurrent cancellations, is visited once.
+// Claimed nodes are unlocked only when the whole subtree is marked, a released descendant must not start.
+// Wide subtrees are shared with helper tasks on the executor. The calling thread takes part,
+// and only waits for nodes already taken by a helper, helpers that never run are not awaited.
+class Cancellation {
+
+    static final int FAN_OUT_THRESHOLD = 4096;
+    private static final int UNLOCK_CHUNK = 1024;
+
+    // Null when the cancellation runs on the calling thread only
+    private final Executor executor;
+    private final int helpers;
+
+    // Claimed nodes whose descendants are not visited yet
+    private final Queue<InitNode> sharedNodes = new ConcurrentLinkedQueue<>();
+    // Shared nodes not visited yet or being visited
+    private final AtomicInteger pendingShared = new AtomicInteger();
+    private final Queue<InitNode> claimedByHelpers = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean visitHelpersStarted = new AtomicBoolean(false);
+
+    private volatile List<InitNode> unlockNodes;
+    private final AtomicInteger nextUnlock = new AtomicInteger();
+    private final AtomicInteger unlocked = new AtomicInteger();
+
+    private final Runnable visitHelper = new Runnable() {
+        @Override
+        public void run() {
+            visitShared(claimedByHelpers);
+        }
+    };
+
+    private final Runnable unlockHelper = new Runnable() {
+        @Override
+        public void run() {
+            unlockChunks();
+        }
+    };
+
+    Cancellation(Executor executor) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.executor = processors > 1 ? executor : null;
+        this.helpers = processors - 1;
+    }
+
+    void cancel(Collection<InitNode> nodes) {
+        List<InitNode> claimed = new ArrayList<>();
+        Deque<InitNode> stack = new ArrayDeque<>();
+        for (InitNode node : nodes) {
+            if (claim(node, claimed)) {
+                stack.push(node);
+            }
+        }
+        visit(stack, claimed);
+
+        if (visitHelpersStarted.get()) {
+            while (pendingShared.get() != 0) {
+                if (!visitShared(claimed)) {
+                    // Remaining nodes are being visited by helpers
+                    Thread.yield();
+                }
+            }
+            claimed.addAll(claimedByHelpers);
+        }
+
+        unlock(claimed);
+    }
+
+    private static boolean claim(InitNode node, Collection<InitNode> claimed) {
+        // Marked first, a node skipped by a concurrent cancellation is already cancelled
+        if (!node.markCancelled() || !node.claimCancel()) {
+            return false;
+        }
+        claimed.add(node);
+        node.onCancelClaimed();
+        return true;
+    }
+
+    // Iterative traversal, descendant subtrees can be deeper than the call stack
+    private void visit(Deque<InitNode> stack, Collection<InitNode> claimed) {
+        while (!stack.isEmpty()) {
+            InitNode node = stack.pop();
+            for (InitNode descendant : node.descendants()) {
+                if (claim(descendant, claimed)) {
+                    stack.push(descendant);
+                }
+            }
+            if (executor != null && stack.size() > FAN_OUT_THRESHOLD) {
+                share(stack);
+            }
+        }
+    }
+
+    private void share(Deque<InitNode> stack) {
+        int count = stack.size() / 2;
+        // Counted before they can be visited, pendingShared never reaches 0 while nodes are left
+        pendingShared.addAndGet(count);
+        for (int i = 0; i < count; i++) {
+            sharedNodes.add(stack.pollLast());
+        }
+        if (visitHelpersStarted.compareAndSet(false, true)) {
+            startHelpers(visitHelper);
+        }
+    }
+
+    private boolean visitShared(Collection<InitNode> claimed) {
+        boolean visited = false;
+        Deque<InitNode> stack = null;
+        InitNode node;
+        while ((node = sharedNodes.poll()) != null) {
+            if (stack == null) {
+                stack = new ArrayDeque<>();
+            }
+            stack.push(node);
+            visit(stack, claimed);
+            pendingShared.decrementAndGet();
+            visited = true;
+        }
+        return visited;
+    }
+
+    private void unlock(List<InitNode> nodes) {
+        if (executor == null || nodes.size() <= FAN_OUT_THRESHOLD) {
+            for (InitNode node : nodes) {
+                node.unlock();
+            }
+            return;
+        }
+        unlockNodes = nodes;
+        startHelpers(unlockHelper);
+        unlockChunks();
+        while (unlocked.get() < nodes.size()) {
+            // Remaining chunks are being unlocked by helpers
+            Thread.yield();
+        }
+    }
+
+    private void unlockChunks() {
+        List<InitNode> nodes = unlockNodes;
+        int start;
+        while ((start = nextUnlock.getAndAdd(UNLOCK_CHUNK)) < nodes.size()) {
+            int end = Math.min(start + UNLOCK_CHUNK, nodes.size());
+            try {
+                for (int i = start; i < end; i++) {
+                    nodes.get(i).unlock();
+                }
+            } finally {
+                unlocked.addAndGet(end - start);
+            }
+        }
+    }
+
+    private void startHelpers(Runnable helper) {
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(helper);
+            } catch (RejectedExecutionException e) {
+                // Executor is shutdown, the calling thread does the work
+                return;
+            }
+        }
+    }
+}
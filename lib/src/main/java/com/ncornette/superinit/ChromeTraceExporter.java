@@ -0,0 +1,105 @@
+package com.ncornette.superinit;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Collects node metrics and writes them in the Chrome trace event format,
+// to open with chrome://tracing or https://ui.perfetto.dev.
+// Each executed node is a slice on the thread that ran it, cancelled nodes are instant events.
+public class ChromeTraceExporter implements NodeMetricsListener {
+
+    private final List<NodeMetrics> metrics = new ArrayList<>();
+
+    @Override
+    public synchronized void onNodeMetrics(NodeMetrics nodeMetrics) {
+        metrics.add(nodeMetrics);
+    }
+
+    public synchronized List<NodeMetrics> metrics() {
+        return new ArrayList<>(metrics);
+    }
+
+    public String toJson() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeTo(writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        List<NodeMetrics> nodeMetrics = metrics();
+        // Nodes cancelled before running may never be enqueued
+        long origin = 0;
+        for (int i = 0; i < nodeMetrics.size(); i++) {
+            NodeMetrics metric = nodeMetrics.get(i);
+            long firstNanos = metric.started() ? metric.enqueueNanos() : metric.endNanos();
+            if (i == 0 || firstNanos - origin < 0) {
+                origin = firstNanos;
+            }
+        }
+
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        Map<Long, String> threads = new LinkedHashMap<>();
+        String separator = "";
+        for (NodeMetrics metric : nodeMetrics) {
+            writer.write(separator);
+            separator = ",";
+            writer.write("{\"name\":");
+            writeString(writer, String.valueOf(metric.node()));
+            writer.write(",\"cat\":\"node\"");
+            if (metric.started()) {
+                threads.put(metric.threadId(), metric.threadName());
+                writer.write(",\"ph\":\"X\",\"ts\":" + micros(metric.startNanos() - origin));
+                writer.write(",\"dur\":" + micros(metric.runNanos()));
+                writer.write(",\"pid\":1,\"tid\":" + metric.threadId());
+            } else {
+                writer.write(",\"ph\":\"i\",\"s\":\"g\",\"ts\":" + micros(metric.endNanos() - origin));
+                writer.write(",\"pid\":1,\"tid\":0");
+            }
+            writer.write(",\"args\":{\"status\":\"" + metric.status() + "\"");
+            if (metric.started()) {
+                writer.write(",\"ready_wait_us\":" + micros(metric.readyNanos() - metric.enqueueNanos()));
+                writer.write(",\"queue_wait_us\":" + micros(metric.queueNanos()));
+            }
+            writer.write("}}");
+        }
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            writer.write(separator);
+            separator = ",";
+            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey());
+            writer.write(",\"args\":{\"name\":");
+            writeString(writer, thread.getValue());
+            writer.write("}}");
+        }
+        writer.write("]}");
+        writer.flush();
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+}
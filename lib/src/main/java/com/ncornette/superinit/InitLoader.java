@@ -1,31 +1,98 @@
 package com.ncornette.superinit;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class InitLoader {
 
+    private final Executor executor;
+    // Null when the executor is borrowed from the caller
     private final ExecutorService executorService;
-    private final MyThreadFactory threadFactory;
-    Collection<InitNode> resolved;
+    private final BorrowedExecutor borrowedExecutor;
+    private volatile boolean shutdown = false;
+    // Nodes of this load, nodes spawned while the graph runs are appended, guarded by this
+    List<InitNode> resolved;
+    // Identity set built from resolved when first needed, guarded by this
+    private Set<InitNode> loadedNodes;
     private InitNode endNode;
+    private CompletionCounter completionCounter;
+    // Null with EAGER scheduling
+    private NodeScheduler nodeScheduler;
+    private Executor nodeExecutor;
     private List<InitNode> errorNodes;
     private InitLoaderCallback loaderCallback;
+    private Thread.UncaughtExceptionHandler nodeErrorHandler;
+    private Scheduling scheduling = Scheduling.EAGER;
+    private NodeMetricsListener metricsListener;
+    private long fusionCost = -1;
+    private int inlineDepth = 0;
+    // 0 when the load has no deadline
+    private long timeoutNanos = 0;
+    private NodeEventListener eventListener;
+    private final Map<String, Integer> resourceLimits = new HashMap<>();
+    private boolean lazy = false;
+    // In the order they were added, nodes of each milestone run after the previous one is reached
+    private final Map<String, Milestone> milestones = new LinkedHashMap<>();
+    // Nodes run or about to run, null when all nodes run right away
+    private Set<InitNode> requested;
 
     public InitLoader(int nThreads) {
-        threadFactory = new MyThreadFactory();
-        executorService = new ThreadPoolExecutor(nThreads, nThreads,
+        this(new ThreadPoolExecutor(nThreads, nThreads,
                 0L, TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<Runnable>(), threadFactory);
+                new LinkedBlockingQueue<Runnable>(), new MyThreadFactory()));
+    }
+
+    // The executor is borrowed: it is never shutdown by the loader.
+    // Prefer Scheduling.ON_READY, so that no borrowed thread waits for a node.
+    public InitLoader(Executor executor) {
+        this.executor = executor;
+        this.executorService = null;
+        this.borrowedExecutor = new BorrowedExecutor();
+    }
+
+    private InitLoader(ExecutorService executorService) {
+        this.executor = executorService;
+        this.executorService = executorService;
+        this.borrowedExecutor = null;
+    }
+
+    // Runs each node on its own virtual thread, nodes blocking on I/O are not limited by a pool size.
+    // Throws UnsupportedOperationException when the runtime does not support virtual threads.
+    public static InitLoader newVirtualThreadLoader() {
+        return new InitLoader(VirtualThreads.newThreadPerTaskExecutor());
+    }
+
+    public static boolean virtualThreadsSupported() {
+        return VirtualThreads.isSupported();
+    }
+
+    // Starts with minThreads, then sizes the pool from the CPU time used by the nodes, so that the number
+    // of threads using the CPU tracks the number of cores: more threads for nodes blocking on I/O, fewer for
+    // nodes using the CPU. Throws UnsupportedOperationException when thread CPU time can't be measured.
+    public static InitLoader newAdaptiveLoader(int minThreads, int maxThreads) {
+        return new InitLoader(new AdaptiveThreadPool(minThreads, maxThreads, new MyThreadFactory()));
     }
 
     public void load(InitLoaderCallback loaderCallback, Collection<? extends InitNode> initNodes) {
@@ -35,15 +102,19 @@ public class InitLoader {
             throw new IllegalStateException("Load() method already called");
         }
 
+        // Not part of the graph, it runs when all nodes are done
         endNode = new TerminateInitNode(loaderCallback);
+        loadedNodes = null;
         resolved = new ArrayList<>();
         dep_resolve(initNodes, resolved);
-
-        endNode.dependsOn(resolved);
-        resolved.add(endNode);
+        // Nodes spawned while the graph runs are added to resolved, not to the nodes being submitted
+        List<InitNode> nodes = new ArrayList<>(resolved);
+        if (!milestones.isEmpty()) {
+            checkMilestones();
+        }
 
         try {
-            executeNodes(loaderCallback, resolved);
+            executeNodes(loaderCallback, nodes);
         } catch (Exception e) {
             cancel();
             if (loaderCallback != null) {
@@ -58,62 +129,557 @@ public class InitLoader {
         load(loaderCallback, Arrays.asList(initNodes));
     }
 
+    public LoadFuture loadAsync(Collection<? extends InitNode> initNodes) {
+        load(null, initNodes);
+        return new LoadFuture(this, resolved, endNode);
+    }
+
+    public LoadFuture loadAsync(InitNode... initNodes) {
+        return loadAsync(Arrays.asList(initNodes));
+    }
+
+    public void setScheduling(Scheduling scheduling) {
+        if (resolved != null) {
+            throw new IllegalStateException("Scheduling must be set before calling load()");
+        }
+        this.scheduling = scheduling;
+    }
+
+    public Scheduling scheduling() {
+        return scheduling;
+    }
+
+    // With ON_READY and CRITICAL_PATH scheduling, ready nodes with a cost up to fusionCost are run
+    // together in one executor task, up to 64 nodes. A chain of such nodes runs on the same thread.
+    public void setFusionCost(long fusionCost) {
+        if (resolved != null) {
+            throw new IllegalStateException("Fusion cost must be set before calling load()");
+        }
+        if (fusionCost < 0) {
+            throw new IllegalArgumentException("Fusion cost must not be negative: " + fusionCost);
+        }
+        this.fusionCost = fusionCost;
+    }
+
+    // With ON_READY and CRITICAL_PATH scheduling, when a node makes exactly one descendant ready,
+    // the descendant runs next on the same thread, without going through the executor.
+    // At most inlineDepth nodes run this way in a row, then the next one is submitted to the executor.
+    public void setInlineDepth(int inlineDepth) {
+        if (resolved != null) {
+            throw new IllegalStateException("Inline depth must be set before calling load()");
+        }
+        if (inlineDepth < 0) {
+            throw new IllegalArgumentException("Inline depth must not be negative: " + inlineDepth);
+        }
+        this.inlineDepth = inlineDepth;
+    }
+
+    // When nodes are not all finished after timeout, running nodes fail with a TimeoutException
+    // and are interrupted, other nodes are cancelled. The deadline starts when load() is called.
+    public void setTimeout(long timeout, TimeUnit unit) {
+        if (resolved != null) {
+            throw new IllegalStateException("Timeout must be set before calling load()");
+        }
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    // With ON_READY and CRITICAL_PATH scheduling, at most maxConcurrency nodes using the resource run
+    // at the same time, see InitNode.resources(). Other ready nodes run meanwhile, no thread waits for it.
+    public void setResourceLimit(String resource, int maxConcurrency) {
+        if (resolved != null) {
+            throw new IllegalStateException("Resource limits must be set before calling load()");
+        }
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be at least 1: " + maxConcurrency);
+        }
+        resourceLimits.put(resource, maxConcurrency);
+    }
+
+    // With lazy loading, load() resolves and validates the graph but runs no node.
+    // Nodes run when they are required with require(), with all their dependencies.
+    public void setLazy(boolean lazy) {
+        if (resolved != null) {
+            throw new IllegalStateException("Lazy loading must be set before calling load()");
+        }
+        this.lazy = lazy;
+    }
+
+    // The milestone is reached when the nodes are done, the future completes then, even if errors occurred.
+    // Milestones run in the order they are added: the nodes of a milestone and their dependencies run first,
+    // the nodes of the next milestone once it is reached, and nodes of no milestone after the last one.
+    // With lazy loading, nodes only run when required, milestones are only reported.
+    public LoadFuture addMilestone(String name, Collection<? extends InitNode> initNodes) {
+        if (resolved != null) {
+            throw new IllegalStateException("Milestones must be added before calling load()");
+        }
+        if (milestones.containsKey(name)) {
+            throw new IllegalArgumentException("Milestone already added: " + name);
+        }
+        if (initNodes.isEmpty()) {
+            throw new IllegalArgumentException("Milestone without nodes: " + name);
+        }
+        List<InitNode> nodes = new ArrayList<>(initNodes);
+        Milestone milestone = new Milestone(nodes, new LoadFuture(this, nodes));
+        milestones.put(name, milestone);
+        return milestone.future;
+    }
+
+    public LoadFuture addMilestone(String name, InitNode... initNodes) {
+        return addMilestone(name, Arrays.asList(initNodes));
+    }
+
+    public LoadFuture milestone(String name) {
+        Milestone milestone = milestones.get(name);
+        if (milestone == null) {
+            throw new IllegalArgumentException("Unknown milestone: " + name);
+        }
+        return milestone.future;
+    }
+
+    private void checkMilestones() {
+        Set<InitNode> resolvedSet = newIdentitySet();
+        resolvedSet.addAll(resolved);
+        for (Map.Entry<String, Milestone> entry : milestones.entrySet()) {
+            for (InitNode node : entry.getValue().nodes) {
+                if (!resolvedSet.contains(node)) {
+                    throw new IllegalArgumentException(
+                            String.format("Node of milestone %s is not loaded: %s", entry.getKey(), node));
+                }
+            }
+        }
+    }
+
+    // Runs the nodes of the milestone at index, then the next milestone once it is reached
+    private void runMilestone(final List<Milestone> stages, final int index) {
+        if (index == stages.size()) {
+            // Nodes of no milestone
+            runRequested(resolvedNodes());
+            return;
+        }
+        Milestone milestone = stages.get(index);
+        List<InitNode> ancestors = new ArrayList<>();
+        dep_resolve(milestone.nodes, ancestors);
+        runRequested(ancestors);
+        milestone.future.whenDone(new LoadFuture.Listener() {
+            @Override
+            public void onLoaded(LoadResult result) {
+                runMilestone(stages, index + 1);
+            }
+        });
+    }
+
+    // Timestamps are recorded only when a listener is set, see ChromeTraceExporter
+    public void setMetricsListener(NodeMetricsListener metricsListener) {
+        if (resolved != null) {
+            throw new IllegalStateException("Metrics listener must be set before calling load()");
+        }
+        this.metricsListener = metricsListener;
+    }
+
+    // Node events are reported only when a listener is set
+    public void setNodeEventListener(NodeEventListener eventListener) {
+        if (resolved != null) {
+            throw new IllegalStateException("Node event listener must be set before calling load()");
+        }
+        this.eventListener = eventListener;
+    }
+
     private void executeNodes(InitLoaderCallback loaderCallback, Collection<InitNode> nodes) {
+        nodeErrorHandler = new NodeUncaughtExceptionHandler(this, loaderCallback);
+        endNode.setErrorHandler(nodeErrorHandler);
+        completionCounter = new CompletionCounter(endNode, nodes.size());
+        nodeExecutor = ownsExecutor() ? executorService : borrowedExecutor;
+        boolean deferred = lazy || !milestones.isEmpty();
+        requested = deferred ? newIdentitySet() : null;
+        prepareNodes(nodes);
+        if (nodes.isEmpty()) {
+            endNode.run();
+        }
+        if (timeoutNanos > 0) {
+            scheduleTimeout();
+        }
+        if (scheduling != Scheduling.EAGER) {
+            nodeScheduler = new NodeScheduler(nodeExecutor, nodeErrorHandler,
+                    scheduling == Scheduling.CRITICAL_PATH, fusionCost, inlineDepth, resourceLimits, deferred, nodes);
+            nodeScheduler.schedule();
+        } else if (!deferred) {
+            for (InitNode node : nodes) {
+                node.enqueued();
+                nodeExecutor.execute(node);
+            }
+        }
+        if (deferred && !lazy) {
+            runMilestone(new ArrayList<>(milestones.values()), 0);
+        }
+    }
+
+    // Runs the nodes and their dependencies, the future completes when they are all done.
+    // With lazy loading, other nodes are not run. Requests sharing dependencies run them once,
+    // a node already run or running for a previous request is awaited, not run again.
+    // With milestones, nodes deferred to a later milestone run right away.
+    // Otherwise all nodes are already running, the future only awaits them.
+    // Cancelling the future cancels the load, like loadAsync().
+    public LoadFuture require(Collection<? extends InitNode> initNodes) {
+        if (resolved == null) {
+            throw new IllegalStateException("Load() method must be called first");
+        }
+        for (InitNode node : initNodes) {
+            // A node of another load has no counter in this scheduler
+            if (!isLoaded(node)) {
+                throw new IllegalArgumentException("Node is not loaded: " + node);
+            }
+        }
+        List<InitNode> ancestors = new ArrayList<>();
+        dep_resolve(initNodes, ancestors);
+        LoadFuture loadFuture = new LoadFuture(this, ancestors);
+        if (requested != null) {
+            runRequested(ancestors);
+        }
+        return loadFuture;
+    }
+
+    public LoadFuture require(InitNode... initNodes) {
+        return require(Arrays.asList(initNodes));
+    }
+
+    // Nodes are in resolved order, dependencies are submitted first
+    private void runRequested(List<InitNode> nodes) {
+        List<InitNode> newNodes = new ArrayList<>();
+        synchronized (requested) {
+            for (InitNode node : nodes) {
+                if (requested.add(node)) {
+                    newNodes.add(node);
+                }
+            }
+            if (nodeScheduler == null) {
+                // EAGER nodes wait for their dependencies on a pool thread. Submitted under the lock,
+                // a requested node is always queued, so a concurrent request can't queue a descendant first.
+                submit(newNodes);
+                return;
+            }
+        }
+        if (!newNodes.isEmpty()) {
+            nodeScheduler.request(newNodes);
+        }
+    }
+
+    private void submit(List<InitNode> nodes) {
+        for (InitNode node : nodes) {
+            node.enqueued();
+            try {
+                nodeExecutor.execute(node);
+            } catch (RejectedExecutionException e) {
+                // Loader is shutdown
+                node.cancel();
+            }
+        }
+    }
+
+    private void prepareNodes(Collection<InitNode> nodes) {
+        // Failed nodes are recorded before their descendants are released, retry() can be called from awaitTasks()
+        NodeDoneListener errorNodesListener = new ErrorNodesListener(errorNodes);
+        for (InitNode node : nodes) {
+            node.whenDone(errorNodesListener);
+        }
+        if (metricsListener != null) {
+            NodeDoneListener metricsReporter = new MetricsReporter(metricsListener);
+            for (InitNode node : nodes) {
+                node.setMetrics(new NodeMetrics(node));
+                node.whenDone(metricsReporter);
+            }
+        }
+        if (eventListener != null) {
+            for (InitNode node : nodes) {
+                node.setEventListener(eventListener);
+            }
+        }
+        for (InitNode node : nodes) {
+            node.setErrorHandler(nodeErrorHandler);
+        }
+        // After the listeners above, the load is complete once every node is recorded
+        for (InitNode node : nodes) {
+            node.whenDone(completionCounter);
+        }
+        for (InitNode node : nodes) {
+            node.setExecutor(nodeExecutor);
+        }
+    }
+
+    // Adds nodes to the graph while it runs, usually from the task of a running node, when it learns
+    // how much work is left. New nodes can depend on loaded nodes and on each other, loaded nodes
+    // can't depend on new nodes. They are scheduled like the loaded nodes, and the load completes
+    // once they are done too. Resource limits don't apply to new nodes.
+    // Throws IllegalStateException when the load is already complete.
+    public void spawn(Collection<? extends InitNode> initNodes) {
+        if (resolved == null) {
+            throw new IllegalStateException("Load() method must be called first");
+        }
+        List<InitNode> nodes = resolveSpawned(initNodes);
+        if (!completionCounter.add(nodes.size())) {
+            throw new IllegalStateException("Load is already complete");
+        }
+        if (requested != null) {
+            // Run right away, before require() can find them loaded
+            synchronized (requested) {
+                requested.addAll(nodes);
+            }
+        }
+        prepareNodes(nodes);
+        addLoaded(nodes);
         for (InitNode node : nodes) {
-            node.setUncaughtExceptionHandler(new NodeUncaughtExceptionHandler(this, loaderCallback));
-            executorService.execute(node);
+            cancelWhenDependencyFails(node);
+        }
+        if (requested != null) {
+            // With lazy loading, loaded dependencies may not be required yet
+            List<InitNode> loadedDependencies = new ArrayList<>();
+            synchronized (requested) {
+                for (InitNode node : nodes) {
+                    for (InitNode dependency : node.dependencies()) {
+                        if (!requested.contains(dependency)) {
+                            loadedDependencies.add(dependency);
+                        }
+                    }
+                }
+            }
+            List<InitNode> ancestors = new ArrayList<>();
+            dep_resolve(loadedDependencies, ancestors);
+            runRequested(ancestors);
+        }
+        if (nodeScheduler != null) {
+            nodeScheduler.add(nodes);
+            return;
+        }
+        submit(nodes);
+    }
+
+    public void spawn(InitNode... initNodes) {
+        spawn(Arrays.asList(initNodes));
+    }
+
+    // A dependency cancelled while the node was added may not have visited it as a descendant.
+    // Registered before the node can be dispatched, a cancelled node never starts.
+    private static void cancelWhenDependencyFails(final InitNode node) {
+        if (node.dependencies().isEmpty()) {
+            return;
+        }
+        NodeDoneListener dependencyListener = new NodeDoneListener() {
+            @Override
+            public void onNodeDone(InitNode dependency) {
+                if (!dependency.success()) {
+                    node.cancel();
+                }
+            }
+        };
+        for (InitNode dependency : node.dependencies()) {
+            dependency.whenDone(dependencyListener);
+        }
+    }
+
+    // True when the node belongs to this load, not to another loader or to an earlier load
+    private synchronized boolean isLoaded(InitNode node) {
+        if (loadedNodes == null) {
+            loadedNodes = newIdentitySet();
+            loadedNodes.addAll(resolved);
+        }
+        return loadedNodes.contains(node);
+    }
+
+    private synchronized void addLoaded(Collection<InitNode> nodes) {
+        resolved.addAll(nodes);
+        if (loadedNodes != null) {
+            loadedNodes.addAll(nodes);
+        }
+    }
+
+    // New nodes in topological order, throws IllegalArgumentException for nodes already loaded,
+    // dependencies neither loaded nor new, and circular dependencies between new nodes
+    private List<InitNode> resolveSpawned(Collection<? extends InitNode> initNodes) {
+        Set<InitNode> newNodes = newIdentitySet();
+        for (InitNode node : initNodes) {
+            if (node.loaded()) {
+                throw new IllegalArgumentException("Node already loaded: " + node);
+            }
+            newNodes.add(node);
+        }
+        Map<InitNode, Integer> pendingDependencies = new IdentityHashMap<>();
+        Deque<InitNode> ready = new ArrayDeque<>();
+        for (InitNode node : newNodes) {
+            int pending = 0;
+            for (InitNode dependency : node.dependencies()) {
+                if (newNodes.contains(dependency)) {
+                    pending++;
+                } else if (!isLoaded(dependency)) {
+                    throw new IllegalArgumentException(
+                            String.format("Dependency of %s is neither loaded nor spawned: %s", node, dependency));
+                }
+            }
+            pendingDependencies.put(node, pending);
+            if (pending == 0) {
+                ready.add(node);
+            }
+        }
+        List<InitNode> nodes = new ArrayList<>(newNodes.size());
+        while (!ready.isEmpty()) {
+            InitNode node = ready.poll();
+            nodes.add(node);
+            for (InitNode descendant : node.descendants()) {
+                Integer pending = pendingDependencies.get(descendant);
+                if (pending != null) {
+                    pendingDependencies.put(descendant, pending - 1);
+                    if (pending == 1) {
+                        ready.add(descendant);
+                    }
+                }
+            }
+        }
+        if (nodes.size() < newNodes.size()) {
+            throw new IllegalArgumentException("Circular Dependency between spawned nodes");
         }
+        return nodes;
+    }
+
+    private void scheduleTimeout() {
+        final Executor executor = nodeExecutor;
+        final List<InitNode> loadNodes = resolved;
+        final ScheduledFuture<?> timeoutFuture = Timeouts.schedule(new Runnable() {
+            @Override
+            public void run() {
+                // Including spawned nodes
+                final List<InitNode> nodes;
+                synchronized (InitLoader.this) {
+                    nodes = new ArrayList<>(loadNodes);
+                }
+                TimeoutException cause = new TimeoutException(String.format("Load timed out after %d ms",
+                        TimeUnit.NANOSECONDS.toMillis(timeoutNanos)));
+                // Nodes not started are cancelled first, threads released by timeouts must not start them
+                for (InitNode node : nodes) {
+                    if (!node.finished()) {
+                        node.markCancelled();
+                    }
+                }
+                for (InitNode node : nodes) {
+                    if (!node.finished()) {
+                        node.timeout(cause);
+                    }
+                }
+                // Unlocks nodes cancelled above, the end node reports the load as cancelled
+                endNode.markCancelled();
+                Timeouts.expire(executor, new Runnable() {
+                    @Override
+                    public void run() {
+                        InitNode.cancel(nodes);
+                    }
+                });
+            }
+        }, timeoutNanos);
+        endNode.whenDone(new NodeDoneListener() {
+            @Override
+            public void onNodeDone(InitNode node) {
+                timeoutFuture.cancel(false);
+            }
+        });
+    }
+
+    private boolean ownsExecutor() {
+        return executorService != null;
     }
 
     static void dep_resolve(Collection<? extends InitNode> initNodes, Collection<InitNode> resolved) {
+        Set<InitNode> resolvedSet = newIdentitySet();
         for (InitNode initNode : initNodes) {
-            if (initNode.dependencies().isEmpty()) {
+            if (initNode.dependencies().isEmpty() && resolvedSet.add(initNode)) {
                 // Insert orphans first
                 resolved.add(initNode);
             }
         }
 
-        List<InitNode> seen = new ArrayList<>();
+        Set<InitNode> seen = newIdentitySet();
         for (InitNode initNode : initNodes) {
-            seen.clear();
-            dep_resolve(initNode, resolved, seen);
+            if (!resolvedSet.contains(initNode)) {
+                dep_resolve(initNode, resolved, resolvedSet, seen);
+            }
         }
 
     }
 
-    private static void dep_resolve(InitNode initNode, Collection<InitNode> resolved, Collection<InitNode> seen) {
+    private static void dep_resolve(InitNode initNode, Collection<InitNode> resolved,
+                                    Set<InitNode> resolvedSet, Set<InitNode> seen) {
+        // Depth first traversal with an explicit stack, dependency chains can be deeper than the call stack
+        Deque<InitNode> path = new ArrayDeque<>();
+        Deque<Iterator<InitNode>> pathDependencies = new ArrayDeque<>();
         seen.add(initNode);
-        for (InitNode dependency : initNode.dependencies()) {
-            if (!resolved.contains(dependency)) {
-                if (seen.contains(dependency)) {
-                    throw new IllegalArgumentException(String.format("Circular Dependency: %s --> %s", initNode, dependency));
+        path.push(initNode);
+        pathDependencies.push(initNode.dependencies().iterator());
+
+        while (!path.isEmpty()) {
+            Iterator<InitNode> dependencies = pathDependencies.peek();
+            if (dependencies.hasNext()) {
+                InitNode dependency = dependencies.next();
+                if (!resolvedSet.contains(dependency)) {
+                    if (seen.contains(dependency)) {
+                        throw new IllegalArgumentException(String.format("Circular Dependency: %s --> %s", path.peek(), dependency));
+                    }
+                    seen.add(dependency);
+                    path.push(dependency);
+                    pathDependencies.push(dependency.dependencies().iterator());
                 }
-                dep_resolve(dependency, resolved, seen);
+            } else {
+                // Nodes in seen are always on the current path, so a resolved node is removed from it
+                InitNode node = path.pop();
+                pathDependencies.pop();
+                seen.remove(node);
+                resolvedSet.add(node);
+                resolved.add(node);
             }
         }
-        if (!resolved.contains(initNode)) {
-            resolved.add(initNode);
-        }
+    }
+
+    // Snapshot of the nodes of this load, including the nodes spawned so far
+    private synchronized List<InitNode> resolvedNodes() {
+        return new ArrayList<>(resolved);
+    }
+
+    static Set<InitNode> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<InitNode, Boolean>());
     }
 
     public void cancel() {
         shutdown();
-        for (InitNode initNode : resolved) {
-            if (!initNode.cancelled()) {
-                initNode.cancel();
-            }
-        }
+        // Before nodes are unlocked, the last one done completes the load
+        endNode.markCancelled();
+        InitNode.cancel(resolvedNodes());
     }
 
     public void shutdown() {
-        executorService.shutdown();
+        if (ownsExecutor()) {
+            executorService.shutdown();
+        } else {
+            // Nodes that are not submitted yet are cancelled
+            shutdown = true;
+        }
+    }
+
+    private boolean isShutdown() {
+        return ownsExecutor() ? executorService.isShutdown() : shutdown;
     }
 
     public void awaitTasks() throws InterruptedException {
-        while (!endNode.await(100, TimeUnit.MILLISECONDS));
+        endNode.await();
     }
 
+    // With a borrowed executor, waits until all tasks submitted by the loader are done
     public void awaitTermination() throws InterruptedException {
+        if (!ownsExecutor()) {
+            if (!shutdown) {
+                awaitTasks();
+                shutdown();
+            }
+            borrowedExecutor.awaitTasksDone();
+            return;
+        }
         if (executorService.isTerminated()) {
             return;
         }
@@ -121,11 +687,24 @@ public class InitLoader {
             awaitTasks();
             shutdown();
         }
-        while(!executorService.awaitTermination(100, TimeUnit.MILLISECONDS));
+        executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
     }
 
+    // With a borrowed executor, interrupts threads running nodes and cancels other nodes
     public void interrupt() {
-        executorService.shutdownNow();
+        if (ownsExecutor()) {
+            executorService.shutdownNow();
+            return;
+        }
+        shutdown = true;
+        if (resolved != null) {
+            List<InitNode> nodes = resolvedNodes();
+            for (InitNode initNode : nodes) {
+                initNode.interruptRunner();
+            }
+            endNode.markCancelled();
+            InitNode.cancel(nodes);
+        }
     }
 
     public void retry() {
@@ -133,11 +712,13 @@ public class InitLoader {
     }
 
     public void retry(InitLoaderCallback newCallback) {
-        if (executorService.isTerminated() || executorService.isShutdown()) {
+        if (isShutdown()) {
             throw new IllegalStateException("ExecutorService is terminated or shutdown.");
         }
         resolved = null;
         endNode = null;
+        // Milestones were reached by the first load, retried nodes are copies
+        milestones.clear();
 
         Collection<InitNode> initNodes = InitNode.newNodesWithDescendants(errorNodes);
         if (initNodes != null) {
@@ -145,6 +726,51 @@ public class InitLoader {
         }
     }
 
+    private class BorrowedExecutor implements Executor {
+
+        private int pendingTasks = 0;
+
+        @Override
+        public void execute(final Runnable command) {
+            synchronized (this) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("InitLoader is shutdown");
+                }
+                pendingTasks++;
+            }
+            final Thread.UncaughtExceptionHandler errorHandler = nodeErrorHandler;
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            command.run();
+                        } catch (Throwable e) {
+                            errorHandler.uncaughtException(Thread.currentThread(), e);
+                        } finally {
+                            taskDone();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                taskDone();
+                throw e;
+            }
+        }
+
+        private synchronized void taskDone() {
+            if (--pendingTasks == 0) {
+                notifyAll();
+            }
+        }
+
+        synchronized void awaitTasksDone() throws InterruptedException {
+            while (pendingTasks > 0) {
+                wait();
+            }
+        }
+    }
+
     private static class NodeUncaughtExceptionHandler implements Thread.UncaughtExceptionHandler {
         private InitLoader initLoader;
         private final InitLoaderCallback loaderCallback;
@@ -164,7 +790,6 @@ public class InitLoader {
                     }
                     // Cancel node in error & descendants
                     nodeExecutionError.node().cancel();
-                    initLoader.addErrorNodes(nodeExecutionError.node());
                 } else {
                     // Cancel all tasks from initloader
                     if (loaderCallback != null) {
@@ -179,9 +804,81 @@ public class InitLoader {
         }
     }
 
-    private void addErrorNodes(InitNode... node) {
+    private static class ErrorNodesListener implements NodeDoneListener {
 
-        errorNodes.addAll(Arrays.asList(node));
+        private final List<InitNode> errorNodes;
+
+        ErrorNodesListener(List<InitNode> errorNodes) {
+            this.errorNodes = errorNodes;
+        }
+
+        @Override
+        public void onNodeDone(InitNode node) {
+            if (node.error()) {
+                errorNodes.add(node);
+            }
+        }
+    }
+
+    // Counts nodes not done yet, the end node runs on the thread completing the last one.
+    // The load is cancelled when a node is not successful, failed nodes are also reported as cancelled.
+    private static class CompletionCounter implements NodeDoneListener {
+
+        private final InitNode endNode;
+        private final AtomicInteger remaining;
+
+        CompletionCounter(InitNode endNode, int nodeCount) {
+            this.endNode = endNode;
+            this.remaining = new AtomicInteger(nodeCount);
+        }
+
+        // False when the load is already complete
+        boolean add(int nodeCount) {
+            while (true) {
+                int current = remaining.get();
+                if (current == 0) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current + nodeCount)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void onNodeDone(InitNode node) {
+            if (!node.success()) {
+                endNode.markCancelled();
+            }
+            if (remaining.decrementAndGet() == 0) {
+                endNode.run();
+            }
+        }
+    }
+
+    private static class Milestone {
+
+        private final List<InitNode> nodes;
+        private final LoadFuture future;
+
+        Milestone(List<InitNode> nodes, LoadFuture future) {
+            this.nodes = nodes;
+            this.future = future;
+        }
+    }
+
+    private static class MetricsReporter implements NodeDoneListener {
+
+        private final NodeMetricsListener metricsListener;
+
+        MetricsReporter(NodeMetricsListener metricsListener) {
+            this.metricsListener = metricsListener;
+        }
+
+        @Override
+        public void onNodeDone(InitNode node) {
+            metricsListener.onNodeMetrics(node.metrics());
+        }
     }
 
     private static class MyThreadFactory implements ThreadFactory {
@@ -1,28 +1,79 @@
 package com.ncornette.superinit;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 public class InitNode implements Runnable {
 
     private static final Set<InitNode> EMPTY_SET = Collections.emptySet();
-    private CountDownLatch countDownLatch = new CountDownLatch(1);
 
     private Set<InitNode> dependencies = EMPTY_SET;
-    private Set<InitNode> descendants = EMPTY_SET;
+    // Replaced by a concurrent set when spawned nodes are added to a loaded node
+    private volatile Set<InitNode> descendants = EMPTY_SET;
+    private boolean concurrentDescendants = false;
 
     private Runnable task;
-    private Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
+    // Reports errors thrown by the node from run(), and timeouts from the timer thread.
+    // Errors are not thrown to the executor, its thread keeps running the next tasks.
+    private Thread.UncaughtExceptionHandler errorHandler;
+    private Thread runner;
+    private boolean runnerInterrupted = false;
+    private List<NodeDoneListener> doneListeners;
+    // Index of the node in the graph of its scheduler
+    private int graphId;
+    private long cost = 1;
+    // 0 when the task can run forever
+    private long timeoutNanos = 0;
+    // Null unless a NodeMetricsListener is set on the loader
+    private NodeMetrics metrics;
+    // Null unless a NodeEventListener is set on the loader
+    private NodeEventListener eventListener;
+
+    // State bits, changed with a CAS so that a node is either started or cancelled, and claimed by one cancellation.
+    // A started node is finished once, by its task or by its timeout.
+    private static final int STARTED = 1;
+    private static final int CANCELLED = 2;
+    private static final int CANCEL_CLAIMED = 4;
+    private static final int FINISHED = 8;
+    // Backoff delay of a retry elapsed, the next attempt is claimed by the pool or by a waiting descendant
+    private static final int RETRY_DUE = 16;
+    // Unlocked once, then done listeners are notified, then waiters are released
+    private static final int COMPLETED = 32;
+    private static final int RELEASED = 64;
+    private static final AtomicIntegerFieldUpdater<InitNode> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(InitNode.class, "state");
+    private volatile int state = 0;
+    private static final AtomicReferenceFieldUpdater<InitNode, Waiter> WAITERS =
+            AtomicReferenceFieldUpdater.newUpdater(InitNode.class, Waiter.class, "waiters");
+    // Stack of threads parked until a state bit is set
+    private volatile Waiter waiters;
+    // Executor of the loader, runs retries and shares the cancellation of wide subtrees
+    private volatile Executor executor;
+    // Null when a failed task is not retried
+    private RetryPolicy retryPolicy;
+    private int attempts = 0;
+    private Set<String> resources = Collections.emptySet();
 
-    private volatile boolean started = false;
     private volatile boolean executed = false;
-    private volatile boolean cancelled = false;
     private volatile Exception error = null;
 
     public Collection<InitNode> newNodesWithDescendants() {
@@ -38,7 +89,7 @@ public class InitNode implements Runnable {
     }
 
     public boolean finished() {
-        return countDownLatch.getCount() == 0;
+        return (state & COMPLETED) != 0;
     }
 
     public boolean success() {
@@ -46,7 +97,11 @@ public class InitNode implements Runnable {
     }
 
     public boolean cancelled() {
-        return cancelled;
+        return (state & CANCELLED) != 0;
+    }
+
+    private boolean started() {
+        return (state & STARTED) != 0;
     }
 
     public boolean error() {
@@ -57,9 +112,59 @@ public class InitNode implements Runnable {
         return error;
     }
 
+    // Estimated cost of the task, in any unit shared by all nodes of the graph
+    public InitNode cost(long cost) {
+        if (cost < 0) {
+            throw new IllegalArgumentException("Cost must not be negative: " + cost);
+        }
+        this.cost = cost;
+        return this;
+    }
+
+    public long cost() {
+        return cost;
+    }
+
+    // When the task runs longer than timeout, the node fails with a TimeoutException,
+    // its thread is interrupted and its descendants are cancelled
+    public InitNode timeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+        this.timeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    public long timeout(TimeUnit unit) {
+        return unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // A task failing with an exception runs again, as long as the node is not cancelled or timed out
+    public InitNode retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    public RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    // Shared resources used by the task, see InitLoader.setResourceLimit()
+    public InitNode resources(String... resources) {
+        if (this.resources.isEmpty()) {
+            this.resources = new HashSet<>();
+        }
+        Collections.addAll(this.resources, resources);
+        return this;
+    }
+
+    public Set<String> resources() {
+        return Collections.unmodifiableSet(resources);
+    }
+
     public InitNode dependsOn(Collection<InitNode> dependencies) {
         if (this.dependencies() == EMPTY_SET) {
-            this.dependencies = new HashSet<>();
+            this.dependencies = new NodeSet();
         }
         for (InitNode dependency : dependencies) {
             if (dependency.dependencies().contains(this) || dependency == this) {
@@ -76,70 +181,380 @@ public class InitNode implements Runnable {
         return dependsOn(Arrays.asList(newDependencies));
     }
 
+    public void whenDone(NodeDoneListener listener) {
+        synchronized (this) {
+            if (!finished()) {
+                if (doneListeners == null) {
+                    doneListeners = new ArrayList<>(1);
+                }
+                doneListeners.add(listener);
+                return;
+            }
+        }
+        // Already finished
+        listener.onNodeDone(this);
+    }
+
     public void await() throws InterruptedException {
-        countDownLatch.await();
+        awaitState(RELEASED, 0);
+    }
+
+    private void awaitFinished() throws InterruptedException {
+        // Listeners are notified before waiters are released, finished nodes are not awaited
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        while (!finished()) {
+            // Lets a ForkJoinPool compensate for the blocked thread
+            ForkJoinPool.managedBlock(new DependencyBlocker());
+            // EAGER descendants hold pool threads while they wait, the retry submitted to the pool
+            // may be queued behind them. The first thread to claim it runs it.
+            if (claimRetry()) {
+                run();
+            }
+        }
+    }
+
+    // Released when the node is finished or when its next attempt is due
+    private class DependencyBlocker implements ForkJoinPool.ManagedBlocker {
+
+        @Override
+        public boolean block() throws InterruptedException {
+            return awaitState(RELEASED | RETRY_DUE, 0);
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return (state & (RELEASED | RETRY_DUE)) != 0;
+        }
     }
 
     protected boolean await(long value, TimeUnit unit) throws InterruptedException {
-        return countDownLatch.await(value, unit);
+        return awaitState(RELEASED, Math.max(1, unit.toNanos(value)));
+    }
+
+    // Parks the thread until one of the state bits is set, false when timeoutNanos elapsed first, 0 to wait forever.
+    // Parked virtual threads release their carrier, unlike threads waiting on a monitor.
+    private boolean awaitState(int bits, long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while ((state & bits) == 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            // A new waiter for each park, the previous one may still be in the stack after a spurious wake-up
+            Waiter waiter = new Waiter(waiters);
+            if (!WAITERS.compareAndSet(this, waiter.next, waiter)) {
+                continue;
+            }
+            // Bit set before the waiter was pushed, it may never be unparked
+            if ((state & bits) != 0) {
+                break;
+            }
+            if (timeoutNanos == 0) {
+                LockSupport.park(this);
+            } else {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remainingNanos);
+            }
+        }
+        return true;
+    }
+
+    // Unparks the threads waiting for a state bit, they check the state again
+    private void releaseWaiters() {
+        for (Waiter waiter = WAITERS.getAndSet(this, null); waiter != null; waiter = waiter.next) {
+            LockSupport.unpark(waiter.thread);
+        }
+    }
+
+    private static final class Waiter {
+
+        final Thread thread = Thread.currentThread();
+        final Waiter next;
+
+        Waiter(Waiter next) {
+            this.next = next;
+        }
     }
 
     public void cancel() {
-        System.out.println("cancel: " + this);
-        if (!started) {
-            cancelled = true;
+        cancel(Collections.singleton(this));
+    }
+
+    static void cancel(Collection<InitNode> nodes) {
+        Executor executor = null;
+        for (InitNode node : nodes) {
+            executor = node.executor;
+            break;
         }
+        new Cancellation(executor).cancel(nodes);
+    }
 
-        try {
-            for (InitNode descendant : descendants()) {
-                System.out.println("cancel desc: " + descendant);
-                if (!descendant.cancelled()) {
-                    descendant.cancel();
-                }
+    // False when the node was already claimed by a cancellation
+    boolean claimCancel() {
+        return setState(CANCEL_CLAIMED);
+    }
+
+    // False when the bit was already set
+    private boolean setState(int bit) {
+        while (true) {
+            int current = state;
+            if ((current & bit) != 0) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, current | bit)) {
+                return true;
+            }
+        }
+    }
+
+    // Cancels the node unless its task is started, false when descendants must not be cancelled and unlocked
+    boolean markCancelled() {
+        while (true) {
+            int current = state;
+            if ((current & STARTED) != 0 || STATE.compareAndSet(this, current, current | CANCELLED)) {
+                return true;
+            }
+        }
+    }
+
+    void onCancelClaimed() {
+        if (eventListener != null && cancelled()) {
+            eventListener.onCancelled(this);
+        }
+    }
+
+    private boolean claimFinish() {
+        return setState(FINISHED);
+    }
+
+    private boolean claimStart() {
+        while (true) {
+            int current = state;
+            // Claimed while running a previous attempt
+            if ((current & (CANCELLED | CANCEL_CLAIMED)) != 0) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, current | STARTED)) {
+                return true;
             }
-        } catch (Throwable e) {
-            throw new RuntimeException(e);
-        } finally {
-            System.out.println("unlock: "+this);
-            unlock();
         }
     }
 
     @Override
     public void run() {
+        if (errorHandler == null) {
+            execute();
+            return;
+        }
+        try {
+            execute();
+        } catch (Throwable e) {
+            errorHandler.uncaughtException(Thread.currentThread(), e);
+        }
+    }
+
+    void execute() {
         if (success() || error()) {
             throw new IllegalStateException(String.format("%s already executed.", this.toString()));
         }
-        if (this.uncaughtExceptionHandler != null) {
-            Thread.currentThread().setUncaughtExceptionHandler(this.uncaughtExceptionHandler);
+        synchronized (this) {
+            runner = Thread.currentThread();
         }
+        try {
+            executeTask();
+        } finally {
+            synchronized (this) {
+                runner = null;
+                if (runnerInterrupted) {
+                    // Interrupt was meant for this node, not for the next task of the thread
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    // Interrupts the thread running the task of this node, if any
+    void interruptRunner() {
+        synchronized (this) {
+            if (runner != null && started()) {
+                runnerInterrupted = true;
+                runner.interrupt();
+            }
+        }
+    }
+
+    private void executeTask() {
         for (InitNode dependency : dependencies()) {
             try {
-                while(!dependency.await(100, TimeUnit.MILLISECONDS));
+                dependency.awaitFinished();
             } catch (InterruptedException e) {
                 error = e;
+                if (eventListener != null) {
+                    eventListener.onFailed(this, e);
+                }
                 cancel();
                 throw new NodeExecutionError(this, e);
             }
         }
 
-        if (cancelled()) {
+        if (!startAttempt()) {
             return;
         }
-
+        ScheduledFuture<?> timeoutFuture = timeoutNanos > 0 ? scheduleTimeout() : null;
+        attempts++;
         try {
-            started = true;
             runTask();
         } catch (Exception e) {
-            error = e;
-            cancel();
+            if (retryPolicy != null && attempts < retryPolicy.maxAttempts()
+                    && (timeoutFuture == null || timeoutFuture.cancel(false))
+                    && releaseForRetry()) {
+                scheduleRetry(retryPolicy.delayNanos(attempts));
+                return;
+            }
+            if (!claimFinish()) {
+                // Already failed by its timeout
+                return;
+            }
+            cancelTimeout(timeoutFuture);
+            fail(e);
             throw new NodeExecutionError(this, e);
         }
+        if (!claimFinish()) {
+            return;
+        }
+        cancelTimeout(timeoutFuture);
+        if (metrics != null) {
+            metrics.ended();
+        }
+        if (eventListener != null) {
+            eventListener.onFinished(this);
+        }
 
         error = null;
         executed = true;
-        cancelled = false;
-        countDownLatch.countDown();
+        unlock();
+    }
+
+    // False when cancelled
+    private boolean startAttempt() {
+        if (!claimStart()) {
+            return false;
+        }
+        if (metrics != null) {
+            metrics.ready(readyNanos());
+            metrics.started(Thread.currentThread());
+        }
+        if (eventListener != null) {
+            eventListener.onStarted(this);
+        }
+        return true;
+    }
+
+    // Not timed out nor cancelled while running, the node is not started anymore
+    // so it can be cancelled until it runs again
+    private boolean releaseForRetry() {
+        while (true) {
+            int current = state;
+            if ((current & (FINISHED | CANCEL_CLAIMED)) != 0) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, current & ~STARTED)) {
+                return true;
+            }
+        }
+    }
+
+    // The backoff waits on the timer thread, no pool thread sleeps
+    private void scheduleRetry(long delayNanos) {
+        Timeouts.schedule(new Runnable() {
+            @Override
+            public void run() {
+                markRetryDue();
+                try {
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (claimRetry()) {
+                                InitNode.this.run();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                }
+            }
+        }, delayNanos);
+    }
+
+    private void markRetryDue() {
+        setState(RETRY_DUE);
+        releaseWaiters();
+    }
+
+    // False when the next attempt is not due or already claimed
+    private boolean claimRetry() {
+        while (true) {
+            int current = state;
+            if ((current & RETRY_DUE) == 0) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, current & ~RETRY_DUE)) {
+                return true;
+            }
+        }
+    }
+
+    private void fail(Exception e) {
+        error = e;
+        if (metrics != null) {
+            metrics.ended();
+        }
+        if (eventListener != null) {
+            eventListener.onFailed(this, e);
+        }
+        cancel();
+    }
+
+    private ScheduledFuture<?> scheduleTimeout() {
+        return Timeouts.schedule(new Runnable() {
+            @Override
+            public void run() {
+                timeout(new TimeoutException(String.format("%s timed out after %d ms",
+                        InitNode.this, TimeUnit.NANOSECONDS.toMillis(timeoutNanos))));
+            }
+        }, timeoutNanos);
+    }
+
+    private static void cancelTimeout(ScheduledFuture<?> timeoutFuture) {
+        if (timeoutFuture != null) {
+            timeoutFuture.cancel(false);
+        }
+    }
+
+    // Fails a started node and interrupts its task, cancels a node not started yet.
+    // Returns false when the node was not started.
+    // Only claims and interrupts the node on the timer thread, the failure is reported from the executor.
+    boolean timeout(final TimeoutException cause) {
+        if (!markCancelled() || !started()) {
+            return false;
+        }
+        if (claimFinish()) {
+            interruptRunner();
+            Timeouts.expire(executor, new Runnable() {
+                @Override
+                public void run() {
+                    fail(cause);
+                    if (errorHandler != null) {
+                        errorHandler.uncaughtException(Thread.currentThread(), new NodeExecutionError(InitNode.this, cause));
+                    }
+                }
+            });
+        }
+        return true;
     }
 
     protected void runTask() {
@@ -155,17 +570,91 @@ public class InitNode implements Runnable {
                 '}';
     }
 
-    void setUncaughtExceptionHandler(Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
-        this.uncaughtExceptionHandler = uncaughtExceptionHandler;
+    void setErrorHandler(Thread.UncaughtExceptionHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    // Latest of the enqueue time and the end of dependencies
+    private long readyNanos() {
+        long readyNanos = metrics.enqueueNanos();
+        for (InitNode dependency : dependencies()) {
+            if (dependency.metrics != null && dependency.metrics.endNanos() - readyNanos > 0) {
+                readyNanos = dependency.metrics.endNanos();
+            }
+        }
+        return readyNanos;
     }
 
     void unlock() {
-        countDownLatch.countDown();
+        if (setState(COMPLETED)) {
+            if (metrics != null) {
+                // Cancelled nodes end when they are unlocked
+                metrics.ended();
+            }
+            if (eventListener != null) {
+                eventListener.onUnlocked(this);
+            }
+            List<NodeDoneListener> listeners;
+            synchronized (this) {
+                listeners = doneListeners;
+                doneListeners = null;
+            }
+            try {
+                if (listeners != null) {
+                    for (NodeDoneListener listener : listeners) {
+                        listener.onNodeDone(this);
+                    }
+                }
+            } finally {
+                // Release waiters once listeners are notified
+                setState(RELEASED);
+                releaseWaiters();
+            }
+        }
+    }
+
+    void setMetrics(NodeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    NodeMetrics metrics() {
+        return metrics;
+    }
+
+    void setEventListener(NodeEventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    // Prepared by a loader
+    boolean loaded() {
+        return executor != null;
+    }
+
+    void enqueued() {
+        if (metrics != null) {
+            metrics.enqueued();
+        }
+    }
+
+    void setGraphId(int graphId) {
+        this.graphId = graphId;
+    }
+
+    int graphId() {
+        return graphId;
     }
 
 
     InitNode newNode() {
         InitNode newInitNode = new InitNode(this.task());
+        newInitNode.cost = cost;
+        newInitNode.timeoutNanos = timeoutNanos;
+        newInitNode.retryPolicy = retryPolicy;
+        newInitNode.resources = resources.isEmpty() ? resources : new HashSet<>(resources);
         return newInitNode;
     }
 
@@ -174,25 +663,31 @@ public class InitNode implements Runnable {
     }
 
     static Collection<InitNode> newNodesWithDescendants(Collection<InitNode> rootNodes) {
-        HashMap<InitNode, InitNode> nodesList = new HashMap<>();
-        for (InitNode rootNode : rootNodes) {
-            newNodesWithDescendants(rootNode, rootNode.newNode(), rootNode.descendants(), nodesList);
+        Map<InitNode, InitNode> newNodes = new IdentityHashMap<>();
+        Deque<InitNode> stack = new ArrayDeque<>(rootNodes);
+        while (!stack.isEmpty()) {
+            InitNode node = stack.pop();
+            if (newNodes.containsKey(node)) {
+                continue;
+            }
+            newNodes.put(node, node.newNode());
+            for (InitNode descendant : node.descendants()) {
+                if (!newNodes.containsKey(descendant)) {
+                    stack.push(descendant);
+                }
+            }
         }
-        return nodesList.values();
-    }
 
-    private static void newNodesWithDescendants(InitNode node, InitNode newNode, Set<InitNode> descendants, HashMap<InitNode, InitNode> nodes) {
-        if (nodes.containsKey(node)) {
-            return;
-        }
-        nodes.put(node, newNode);
-        for (InitNode descendant : descendants) {
-            if (!(descendant instanceof TerminateInitNode)) {
-                InitNode newDescendant = descendant.newNode();
-                newDescendant.dependsOn(newNode);
-                newNodesWithDescendants(descendant, newDescendant, descendant.descendants(), nodes);
+        // Copy dependencies between copied nodes only
+        for (Map.Entry<InitNode, InitNode> entry : newNodes.entrySet()) {
+            for (InitNode dependency : entry.getKey().dependencies()) {
+                InitNode newDependency = newNodes.get(dependency);
+                if (newDependency != null) {
+                    entry.getValue().dependsOn(newDependency);
+                }
             }
         }
+        return newNodes.values();
     }
 
     private boolean setDependencies(Collection<InitNode> dependencies) {
@@ -201,14 +696,29 @@ public class InitNode implements Runnable {
 
     private void setDescendantOf(Collection<InitNode> dependencies) {
         for (InitNode dependency : dependencies) {
+            if (dependency.loaded()) {
+                // Nodes spawned by concurrent tasks can depend on the same loaded node
+                dependency.addConcurrentDescendant(this);
+                continue;
+            }
             if (dependency.descendants() == EMPTY_SET) {
-                dependency.descendants = new HashSet<>();
+                dependency.descendants = new NodeSet();
             }
             dependency.descendants().add(this);
         }
 
     }
 
+    private synchronized void addConcurrentDescendant(InitNode descendant) {
+        if (!concurrentDescendants) {
+            Set<InitNode> set = Collections.newSetFromMap(new ConcurrentHashMap<InitNode, Boolean>());
+            set.addAll(descendants);
+            descendants = set;
+            concurrentDescendants = true;
+        }
+        descendants.add(descendant);
+    }
+
     Set<InitNode> dependencies() {
         return dependencies;
     }
@@ -0,0 +1,323 @@
+package com.ncornette.superinit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Immutable graph of nodes, resolved and validated once, that can be executed many times.
+// Edges, retry policies and timeouts are copied when compiling, later calls to dependsOn() don't change the plan.
+// Costs and resources are ignored: executions submit nodes as soon as they are ready, without fusion,
+// critical path order or resource limits, which are InitLoader settings.
+// Run state is kept by each execution, the state of the InitNode objects is never used or modified,
+// only their task is run, once per execution.
+public final class InitPlan {
+
+    private final InitNode[] nodes;
+    private final int[] dependencyCounts;
+    private final int[] descendantOffsets;
+    private final int[] descendants;
+    private final RetryPolicy[] retryPolicies;
+    private final long[] timeoutNanos;
+
+    private InitPlan(List<InitNode> resolved) {
+        NodeGraph graph = new NodeGraph(resolved);
+        nodes = graph.nodes;
+        dependencyCounts = graph.dependencyCounts;
+        descendantOffsets = graph.descendantOffsets;
+        descendants = graph.descendants;
+        retryPolicies = new RetryPolicy[nodes.length];
+        timeoutNanos = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            retryPolicies[i] = nodes[i].retryPolicy();
+            timeoutNanos[i] = nodes[i].timeout(TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Nodes and all their dependencies, throws IllegalArgumentException for circular dependencies
+    public static InitPlan compile(InitNode... nodes) {
+        return compile(Arrays.asList(nodes));
+    }
+
+    public static InitPlan compile(Collection<? extends InitNode> nodes) {
+        List<InitNode> resolved = new ArrayList<>(nodes.size());
+        InitLoader.dep_resolve(nodes, resolved);
+        for (InitNode node : resolved) {
+            if (node instanceof TerminateInitNode) {
+                throw new IllegalArgumentException("Cannot compile a loader end node: " + node);
+            }
+        }
+        return new InitPlan(resolved);
+    }
+
+    // Nodes in topological order, dependencies first
+    public List<InitNode> nodes() {
+        return Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public LoadFuture execute(Executor executor) {
+        return execute(executor, null);
+    }
+
+    // Executions are independent, the same plan can be executed concurrently
+    public LoadFuture execute(Executor executor, InitLoaderCallback callback) {
+        Execution execution = new Execution(executor, callback);
+        execution.start();
+        return execution;
+    }
+
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int SUCCESS = 2;
+    private static final int ERROR = 3;
+    private static final int CANCELLED = 4;
+
+    private class Execution extends LoadFuture {
+
+        private final Executor executor;
+        private final InitLoaderCallback callback;
+        private final AtomicIntegerArray pendingDependencies = new AtomicIntegerArray(dependencyCounts);
+        private final AtomicIntegerArray states = new AtomicIntegerArray(nodes.length);
+        private final AtomicInteger remaining = new AtomicInteger(nodes.length);
+        private final int[] attempts = new int[nodes.length];
+        // Threads running nodes with a timeout, cleared by the timeout when it interrupts them
+        private final Thread[] runners = new Thread[nodes.length];
+        private volatile boolean failed = false;
+        private volatile boolean cancelled = false;
+
+        Execution(Executor executor, InitLoaderCallback callback) {
+            this.executor = executor;
+            this.callback = callback;
+        }
+
+        void start() {
+            if (nodes.length == 0) {
+                finish();
+                return;
+            }
+            for (int i = 0; i < nodes.length; i++) {
+                if (dependencyCounts[i] == 0 && !submit(i)) {
+                    nodeDone(i);
+                }
+            }
+        }
+
+        private boolean submit(final int node) {
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        runNode(node);
+                    }
+                });
+                return true;
+            } catch (RejectedExecutionException e) {
+                states.set(node, CANCELLED);
+                failed = true;
+                return false;
+            }
+        }
+
+        private void runNode(int node) {
+            if (!states.compareAndSet(node, NEW, RUNNING)) {
+                // Cancelled before running
+                nodeDone(node);
+                return;
+            }
+            Exception failure = null;
+            ScheduledFuture<?> timeoutFuture = timeoutNanos[node] > 0 ? scheduleTimeout(node) : null;
+            try {
+                nodes[node].runTask();
+            } catch (Exception e) {
+                failure = e;
+            } catch (Error e) {
+                boolean timedOut = !states.compareAndSet(node, RUNNING, ERROR);
+                cancelLoad();
+                if (callback != null) {
+                    callback.onError(e);
+                }
+                if (!timedOut) {
+                    nodeDone(node);
+                }
+                throw e;
+            } finally {
+                if (timeoutFuture != null) {
+                    timeoutFuture.cancel(false);
+                    releaseRunner(node);
+                }
+            }
+            // Nodes timed out while running are completed by their timeout
+            if (failure == null) {
+                if (states.compareAndSet(node, RUNNING, SUCCESS)) {
+                    nodeDone(node);
+                }
+            } else if (!scheduleRetry(node) && states.compareAndSet(node, RUNNING, ERROR)) {
+                nodeFailed(node, failure);
+                nodeDone(node);
+            }
+        }
+
+        private void nodeFailed(int node, Exception e) {
+            cancelDescendants(node);
+            if (callback != null) {
+                callback.onNodeError(new NodeExecutionError(nodes[node], e));
+            }
+        }
+
+        // The timer only fails the node and interrupts its thread, the node is completed on the executor
+        private ScheduledFuture<?> scheduleTimeout(final int node) {
+            synchronized (runners) {
+                runners[node] = Thread.currentThread();
+            }
+            return Timeouts.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!states.compareAndSet(node, RUNNING, ERROR)) {
+                        // Finished in time, or retried
+                        return;
+                    }
+                    synchronized (runners) {
+                        if (runners[node] != null) {
+                            runners[node].interrupt();
+                            runners[node] = null;
+                        }
+                    }
+                    final TimeoutException cause = new TimeoutException(String.format("%s timed out after %d ms",
+                            nodes[node], TimeUnit.NANOSECONDS.toMillis(timeoutNanos[node])));
+                    Timeouts.expire(executor, new Runnable() {
+                        @Override
+                        public void run() {
+                            nodeFailed(node, cause);
+                            nodeDone(node);
+                        }
+                    });
+                }
+            }, timeoutNanos[node]);
+        }
+
+        private void releaseRunner(int node) {
+            synchronized (runners) {
+                if (runners[node] == null) {
+                    // Interrupt was meant for this node, not for the next task of the thread
+                    Thread.interrupted();
+                } else {
+                    runners[node] = null;
+                }
+            }
+        }
+
+        // Back to NEW until it runs again, a cancelled load skips the retry
+        private boolean scheduleRetry(final int node) {
+            RetryPolicy retryPolicy = retryPolicies[node];
+            if (retryPolicy == null || ++attempts[node] >= retryPolicy.maxAttempts()
+                    || !states.compareAndSet(node, RUNNING, NEW) || cancelled) {
+                return false;
+            }
+            Timeouts.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!submit(node)) {
+                        nodeDone(node);
+                    }
+                }
+            }, retryPolicy.delayNanos(attempts[node]));
+            return true;
+        }
+
+        // Each node is completed once, by the thread releasing its last dependency
+        private void nodeDone(int node) {
+            Deque<Integer> cancelled = null;
+            int next = node;
+            while (true) {
+                for (int i = descendantOffsets[next]; i < descendantOffsets[next + 1]; i++) {
+                    int descendant = descendants[i];
+                    if (pendingDependencies.decrementAndGet(descendant) == 0) {
+                        if (states.get(descendant) == CANCELLED || !submit(descendant)) {
+                            // Complete cancelled nodes here, without recursion
+                            if (cancelled == null) {
+                                cancelled = new ArrayDeque<>();
+                            }
+                            cancelled.push(descendant);
+                        }
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    finish();
+                }
+                if (cancelled == null || cancelled.isEmpty()) {
+                    return;
+                }
+                next = cancelled.pop();
+            }
+        }
+
+        private void cancelDescendants(int node) {
+            failed = true;
+            Deque<Integer> stack = new ArrayDeque<>();
+            stack.push(node);
+            while (!stack.isEmpty()) {
+                int next = stack.pop();
+                for (int i = descendantOffsets[next]; i < descendantOffsets[next + 1]; i++) {
+                    int descendant = descendants[i];
+                    if (states.compareAndSet(descendant, NEW, CANCELLED)) {
+                        stack.push(descendant);
+                    }
+                }
+            }
+        }
+
+        @Override
+        void cancelLoad() {
+            // Running nodes finish, nodes not started are cancelled
+            failed = true;
+            cancelled = true;
+            for (int i = 0; i < nodes.length; i++) {
+                states.compareAndSet(i, NEW, CANCELLED);
+            }
+        }
+
+        private void finish() {
+            Map<InitNode, LoadResult.Status> statuses = new LinkedHashMap<>(nodes.length * 2);
+            for (int i = 0; i < nodes.length; i++) {
+                statuses.put(nodes[i], statusOf(states.get(i)));
+            }
+            if (callback != null) {
+                if (failed) {
+                    callback.onCancelled();
+                } else {
+                    callback.onFinished();
+                }
+            }
+            complete(new LoadResult(statuses));
+        }
+
+        private LoadResult.Status statusOf(int state) {
+            switch (state) {
+                case SUCCESS:
+                    return LoadResult.Status.SUCCESS;
+                case ERROR:
+                    return LoadResult.Status.ERROR;
+                case CANCELLED:
+                    return LoadResult.Status.CANCELLED;
+                default:
+                    return LoadResult.Status.NOT_EXECUTED;
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.ncornette.superinit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoadFuture implements Future<LoadResult> {
+
+    public interface Listener {
+
+        // Is called once when all nodes are finished, even if errors occurred
+        void onLoaded(LoadResult result);
+    }
+
+    private final InitLoader initLoader;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final Object lock = new Object();
+    private List<Listener> listeners;
+    private volatile LoadResult result;
+    private volatile boolean cancelled = false;
+
+    // Completed by the owner through complete(), cancelled through cancelLoad()
+    LoadFuture() {
+        this.initLoader = null;
+    }
+
+    LoadFuture(InitLoader initLoader, final Collection<InitNode> nodes, InitNode endNode) {
+        this.initLoader = initLoader;
+        endNode.whenDone(new NodeDoneListener() {
+            @Override
+            public void onNodeDone(InitNode node) {
+                complete(new LoadResult(nodes));
+            }
+        });
+    }
+
+    // Completed when all the nodes are done
+    LoadFuture(InitLoader initLoader, final Collection<InitNode> nodes) {
+        this.initLoader = initLoader;
+        if (nodes.isEmpty()) {
+            complete(new LoadResult(nodes));
+            return;
+        }
+        final AtomicInteger remaining = new AtomicInteger(nodes.size());
+        NodeDoneListener doneListener = new NodeDoneListener() {
+            @Override
+            public void onNodeDone(InitNode node) {
+                if (remaining.decrementAndGet() == 0) {
+                    complete(new LoadResult(nodes));
+                }
+            }
+        };
+        for (InitNode node : nodes) {
+            node.whenDone(doneListener);
+        }
+    }
+
+    public void whenDone(Listener listener) {
+        synchronized (lock) {
+            if (result == null) {
+                if (listeners == null) {
+                    listeners = new ArrayList<>(1);
+                }
+                listeners.add(listener);
+                return;
+            }
+        }
+        // Already loaded
+        listener.onLoaded(result);
+    }
+
+    void complete(LoadResult loadResult) {
+        List<Listener> toNotify;
+        synchronized (lock) {
+            result = loadResult;
+            toNotify = listeners;
+            listeners = null;
+        }
+        try {
+            if (toNotify != null) {
+                for (Listener listener : toNotify) {
+                    listener.onLoaded(loadResult);
+                }
+            }
+        } finally {
+            // Listeners are notified before get() returns
+            done.countDown();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (isDone()) {
+            return false;
+        }
+        // Running nodes are never interrupted, so the end node can still report the cancellation
+        cancelled = true;
+        cancelLoad();
+        return true;
+    }
+
+    void cancelLoad() {
+        initLoader.cancel();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return cancelled || result != null;
+    }
+
+    @Override
+    public LoadResult get() throws InterruptedException, ExecutionException {
+        done.await();
+        return getResult();
+    }
+
+    @Override
+    public LoadResult get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getResult();
+    }
+
+    private LoadResult getResult() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package com.ncornette.superinit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LoadResult {
+
+    public enum Status {
+        SUCCESS,
+        ERROR,
+        CANCELLED,
+        NOT_EXECUTED
+    }
+
+    private final Map<InitNode, Status> statuses;
+
+    LoadResult(Collection<InitNode> nodes) {
+        statuses = new LinkedHashMap<>(nodes.size() * 2);
+        for (InitNode node : nodes) {
+            statuses.put(node, statusOf(node));
+        }
+    }
+
+    LoadResult(Map<InitNode, Status> statuses) {
+        this.statuses = statuses;
+    }
+
+    static Status statusOf(InitNode node) {
+        return node.error() ? Status.ERROR :
+                node.cancelled() ? Status.CANCELLED :
+                        node.success() ? Status.SUCCESS :
+                                Status.NOT_EXECUTED;
+    }
+
+    public boolean success() {
+        for (Status status : statuses.values()) {
+            if (status != Status.SUCCESS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Status status(InitNode node) {
+        return statuses.get(node);
+    }
+
+    public Collection<InitNode> nodes() {
+        return Collections.unmodifiableCollection(statuses.keySet());
+    }
+
+    public List<InitNode> nodes(Status status) {
+        List<InitNode> nodes = new ArrayList<>();
+        for (Map.Entry<InitNode, Status> entry : statuses.entrySet()) {
+            if (entry.getValue() == status) {
+                nodes.add(entry.getKey());
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadResult{" +
+                "" + statuses +
+                '}';
+    }
+}
@@ -0,0 +1,7 @@
+package com.ncornette.superinit;
+
+public interface NodeDoneListener {
+
+    // Is called once when the node is finished, on success, error or cancellation
+    void onNodeDone(InitNode node);
+}
@@ -0,0 +1,20 @@
+package com.ncornette.superinit;
+
+// Lifecycle events of the nodes of a loader, called on the thread that changes the node state
+public interface NodeEventListener {
+
+    // The task of the node is about to run
+    void onStarted(InitNode node);
+
+    // The task of the node returned
+    void onFinished(InitNode node);
+
+    // The task of the node threw an exception, or the node was interrupted while waiting
+    void onFailed(InitNode node, Throwable error);
+
+    // The node will not run, because a dependency failed or the loader was cancelled
+    void onCancelled(InitNode node);
+
+    // The node is done, its descendants are released
+    void onUnlocked(InitNode node);
+}
@@ -0,0 +1,54 @@
+package com.ncornette.superinit;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Resolved nodes with int ids, in the order they were resolved, and edges stored in CSR arrays.
+// Descendants of node i are descendants[descendantOffsets[i] .. descendantOffsets[i + 1]],
+// edges to nodes outside of the graph are ignored.
+final class NodeGraph {
+
+    final InitNode[] nodes;
+    final int[] dependencyCounts;
+    final int[] descendantOffsets;
+    final int[] descendants;
+
+    NodeGraph(Collection<InitNode> resolved) {
+        int size = resolved.size();
+        nodes = resolved.toArray(new InitNode[size]);
+        Map<InitNode, Integer> ids = new IdentityHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.put(nodes[i], i);
+        }
+
+        dependencyCounts = new int[size];
+        descendantOffsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            int count = 0;
+            for (InitNode descendant : nodes[i].descendants()) {
+                Integer id = ids.get(descendant);
+                if (id != null) {
+                    dependencyCounts[id]++;
+                    count++;
+                }
+            }
+            descendantOffsets[i + 1] = descendantOffsets[i] + count;
+        }
+
+        descendants = new int[descendantOffsets[size]];
+        for (int i = 0; i < size; i++) {
+            int offset = descendantOffsets[i];
+            for (InitNode descendant : nodes[i].descendants()) {
+                Integer id = ids.get(descendant);
+                if (id != null) {
+                    descendants[offset++] = id;
+                }
+            }
+        }
+    }
+
+    int size() {
+        return nodes.length;
+    }
+}
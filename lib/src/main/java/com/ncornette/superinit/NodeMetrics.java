@@ -0,0 +1,94 @@
+package com.ncornette.superinit;
+
+// Timestamps of a node execution, from System.nanoTime()
+public final class NodeMetrics {
+
+    private final InitNode node;
+    private volatile long enqueueNanos;
+    private volatile long readyNanos;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile Thread thread;
+
+    NodeMetrics(InitNode node) {
+        this.node = node;
+    }
+
+    public InitNode node() {
+        return node;
+    }
+
+    public LoadResult.Status status() {
+        return LoadResult.statusOf(node);
+    }
+
+    // When the node was submitted to the executor
+    public long enqueueNanos() {
+        return enqueueNanos;
+    }
+
+    // When all dependencies of the node were finished
+    public long readyNanos() {
+        return readyNanos;
+    }
+
+    // When the task started, false for nodes cancelled before running
+    public boolean started() {
+        return thread != null;
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    public long endNanos() {
+        return endNanos;
+    }
+
+    // Ready but waiting for a thread
+    public long queueNanos() {
+        return started() ? startNanos - readyNanos : 0;
+    }
+
+    public long runNanos() {
+        return started() ? endNanos - startNanos : 0;
+    }
+
+    public long threadId() {
+        return started() ? thread.getId() : -1;
+    }
+
+    public String threadName() {
+        return started() ? thread.getName() : null;
+    }
+
+    void enqueued() {
+        enqueueNanos = System.nanoTime();
+    }
+
+    void ready(long readyNanos) {
+        this.readyNanos = readyNanos;
+    }
+
+    void started(Thread thread) {
+        startNanos = System.nanoTime();
+        this.thread = thread;
+    }
+
+    void ended() {
+        if (endNanos == 0) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NodeMetrics{" +
+                "node=" + node +
+                ", status=" + status() +
+                ", queueNanos=" + queueNanos() +
+                ", runNanos=" + runNanos() +
+                ", thread=" + threadName() +
+                '}';
+    }
+}
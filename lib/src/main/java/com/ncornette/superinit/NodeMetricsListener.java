@@ -0,0 +1,8 @@
+package com.ncornette.superinit;
+
+public interface NodeMetricsListener {
+
+    // Is called once for each node when it is finished, successful, in error or cancelled,
+    // before its descendants are released
+    void onNodeMetrics(NodeMetrics metrics);
+}
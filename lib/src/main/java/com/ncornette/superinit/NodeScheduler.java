@@ -0,0 +1,441 @@
+package com.ncornette.superinit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+class NodeScheduler implements NodeDoneListener {
+
+    // Most nodes run by one fused task
+    static final int MAX_FUSED_NODES = 64;
+
+    private final Executor executor;
+    private final Thread.UncaughtExceptionHandler errorHandler;
+    private final NodeGraph graph;
+    private final AtomicIntegerArray pendingDependencies;
+    private final Queue<InitNode> rejectedNodes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger rejectedCount = new AtomicInteger();
+
+    private final Comparator<InitNode> criticalPathFirst = new Comparator<InitNode>() {
+        @Override
+        public int compare(InitNode node1, InitNode node2) {
+            return Long.compare(criticalPath(node2), criticalPath(node1));
+        }
+    };
+    // Cost of each node and its most expensive path of descendants, by id, null in FIFO order
+    private final long[] criticalPaths;
+    // Critical paths of spawned nodes, which are not in the int graph
+    private final Map<InitNode, Long> spawnedCriticalPaths = new ConcurrentHashMap<>();
+
+    // Null when ready nodes are submitted in FIFO order
+    private final PriorityBlockingQueue<InitNode> readyNodes;
+    private final Runnable runNextReadyNode = new Runnable() {
+        @Override
+        public void run() {
+            runNode(readyNodes.poll());
+        }
+    };
+
+    // Ready nodes with a cost up to fusionCost are run together by fused tasks, negative when disabled
+    private final long fusionCost;
+    private final ThreadLocal<FusedTask> currentFusedTask = new ThreadLocal<>();
+
+    // Most nodes run inline after the node dispatched to the executor, 0 when disabled
+    private final int inlineDepth;
+    private final ThreadLocal<InlineRun> currentInlineRun = new ThreadLocal<>();
+
+    // Null when no node uses a limited resource
+    private final ResourceLimits resourceLimits;
+
+    // With lazy scheduling, each node also waits to be requested
+    private final boolean lazy;
+
+    // Nodes in resolved order, ready nodes are dispatched when their pending dependencies counter reaches 0
+    NodeScheduler(Executor executor, Thread.UncaughtExceptionHandler errorHandler, boolean criticalPathFirst,
+                  long fusionCost, int inlineDepth, Map<String, Integer> resourceLimits, boolean lazy,
+                  Collection<InitNode> nodes) {
+        this.executor = executor;
+        this.errorHandler = errorHandler;
+        this.fusionCost = fusionCost;
+        this.inlineDepth = inlineDepth;
+        this.readyNodes = criticalPathFirst ? new PriorityBlockingQueue<>(11, this.criticalPathFirst) : null;
+        this.graph = new NodeGraph(nodes);
+        this.criticalPaths = criticalPathFirst ? computeCriticalPaths(graph) : null;
+        this.lazy = lazy;
+        if (lazy) {
+            // The request counts as one more dependency
+            int[] pendingCounts = new int[graph.size()];
+            for (int i = 0; i < graph.size(); i++) {
+                pendingCounts[i] = graph.dependencyCounts[i] + 1;
+            }
+            this.pendingDependencies = new AtomicIntegerArray(pendingCounts);
+        } else {
+            this.pendingDependencies = new AtomicIntegerArray(graph.dependencyCounts);
+        }
+        this.resourceLimits = ResourceLimits.create(resourceLimits, graph,
+                criticalPathFirst ? this.criticalPathFirst : null);
+    }
+
+    void schedule() {
+        // Ids must all be set before the first node can complete
+        for (int i = 0; i < graph.size(); i++) {
+            graph.nodes[i].setGraphId(i);
+        }
+        List<InitNode> tinyNodes = null;
+        List<InitNode> nodes = new ArrayList<>();
+        for (int i = 0; i < graph.size(); i++) {
+            InitNode node = graph.nodes[i];
+            node.whenDone(this);
+            if (!lazy && graph.dependencyCounts[i] == 0 && ready(node)) {
+                if (tiny(node)) {
+                    if (tinyNodes == null) {
+                        tinyNodes = new ArrayList<>();
+                    }
+                    tinyNodes.add(node);
+                } else {
+                    nodes.add(node);
+                }
+            }
+        }
+        dispatchAll(nodes);
+        if (tinyNodes != null) {
+            dispatchFused(tinyNodes);
+        }
+    }
+
+    // With lazy scheduling, nodes are dispatched once requested and their dependencies are done.
+    // Each node must be requested once.
+    void request(List<InitNode> nodes) {
+        List<InitNode> tinyNodes = null;
+        List<InitNode> requestedNodes = new ArrayList<>();
+        for (InitNode node : nodes) {
+            if (pendingDependencies.decrementAndGet(node.graphId()) == 0 && ready(node)) {
+                if (tiny(node)) {
+                    if (tinyNodes == null) {
+                        tinyNodes = new ArrayList<>();
+                    }
+                    tinyNodes.add(node);
+                } else {
+                    requestedNodes.add(node);
+                }
+            }
+        }
+        dispatchAll(requestedNodes);
+        if (tinyNodes != null) {
+            dispatchFused(tinyNodes);
+        }
+    }
+
+    // Nodes spawned while the graph runs, in topological order. They are not in the int graph,
+    // each one counts its pending dependencies with a done listener on them.
+    void add(List<InitNode> nodes) {
+        if (readyNodes != null) {
+            // Descendants of new nodes are new nodes, computed first
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                InitNode node = nodes.get(i);
+                long longestDescendantPath = 0;
+                for (InitNode descendant : node.descendants()) {
+                    longestDescendantPath = Math.max(longestDescendantPath, criticalPath(descendant));
+                }
+                spawnedCriticalPaths.put(node, node.cost() + longestDescendantPath);
+            }
+        }
+        for (final InitNode node : nodes) {
+            Collection<InitNode> dependencies = node.dependencies();
+            if (dependencies.isEmpty()) {
+                if (!node.cancelled()) {
+                    dispatch(node);
+                }
+                continue;
+            }
+            final AtomicInteger pending = new AtomicInteger(dependencies.size());
+            NodeDoneListener dependencyListener = new NodeDoneListener() {
+                @Override
+                public void onNodeDone(InitNode dependency) {
+                    if (pending.decrementAndGet() == 0 && !node.cancelled()) {
+                        dispatch(node);
+                    }
+                }
+            };
+            for (InitNode dependency : dependencies) {
+                dependency.whenDone(dependencyListener);
+            }
+        }
+    }
+
+    private boolean tiny(InitNode node) {
+        return fusionCost >= 0 && node.cost() <= fusionCost;
+    }
+
+    private static long[] computeCriticalPaths(NodeGraph graph) {
+        // Resolved nodes are ordered after their dependencies, descendants are computed first
+        long[] criticalPaths = new long[graph.size()];
+        for (int i = graph.size() - 1; i >= 0; i--) {
+            long longestDescendantPath = 0;
+            for (int j = graph.descendantOffsets[i]; j < graph.descendantOffsets[i + 1]; j++) {
+                longestDescendantPath = Math.max(longestDescendantPath, criticalPaths[graph.descendants[j]]);
+            }
+            criticalPaths[i] = graph.nodes[i].cost() + longestDescendantPath;
+        }
+        return criticalPaths;
+    }
+
+    private long criticalPath(InitNode node) {
+        int id = node.graphId();
+        if (id < graph.size() && graph.nodes[id] == node) {
+            return criticalPaths[id];
+        }
+        Long criticalPath = spawnedCriticalPaths.get(node);
+        return criticalPath != null ? criticalPath : node.cost();
+    }
+
+    // False when the node is cancelled: its cancellation unlocks it, a task running it would do nothing.
+    // Also false when the node waits for a resource, it is dispatched once another node releases it.
+    private boolean ready(InitNode node) {
+        return !node.cancelled()
+                && (resourceLimits == null || !resourceLimits.limited(node) || resourceLimits.acquire(node));
+    }
+
+    @Override
+    public void onNodeDone(InitNode node) {
+        List<InitNode> admittedNodes = resourceLimits != null && resourceLimits.limited(node)
+                ? resourceLimits.release(node) : null;
+        // Tiny ready nodes continue the fused task running on this thread, if any, or are fused together
+        FusedTask fusedTask = fusionCost >= 0 ? currentFusedTask.get() : null;
+        List<InitNode> tinyNodes = null;
+        // A single ready node can run next on this thread
+        InitNode singleReadyNode = null;
+        int readyCount = 0;
+        int id = node.graphId();
+        for (int i = graph.descendantOffsets[id]; i < graph.descendantOffsets[id + 1]; i++) {
+            int descendant = graph.descendants[i];
+            if (pendingDependencies.decrementAndGet(descendant) == 0) {
+                InitNode readyNode = graph.nodes[descendant];
+                if (!ready(readyNode)) {
+                    continue;
+                }
+                if (!tiny(readyNode)) {
+                    readyCount++;
+                    if (readyCount == 1) {
+                        singleReadyNode = readyNode;
+                    } else {
+                        if (readyCount == 2) {
+                            dispatch(singleReadyNode);
+                        }
+                        dispatch(readyNode);
+                    }
+                } else if (fusedTask == null || !fusedTask.add(readyNode)) {
+                    if (tinyNodes == null) {
+                        tinyNodes = new ArrayList<>();
+                    }
+                    tinyNodes.add(readyNode);
+                }
+            }
+        }
+        if (readyCount == 1 && !runNext(singleReadyNode)) {
+            dispatch(singleReadyNode);
+        }
+        if (tinyNodes != null) {
+            dispatchFused(tinyNodes);
+        }
+        if (admittedNodes != null) {
+            for (InitNode admittedNode : admittedNodes) {
+                if (!admittedNode.cancelled()) {
+                    dispatch(admittedNode);
+                }
+            }
+        }
+    }
+
+    private boolean runNext(InitNode node) {
+        InlineRun inlineRun = inlineDepth > 0 ? currentInlineRun.get() : null;
+        if (inlineRun == null || inlineRun.next != null || inlineRun.depth >= inlineDepth) {
+            return false;
+        }
+        node.enqueued();
+        inlineRun.next = node;
+        return true;
+    }
+
+    private void runNode(InitNode node) {
+        if (inlineDepth == 0) {
+            node.run();
+            return;
+        }
+        // Runs the node, then the single descendant it made ready, and so on up to inlineDepth nodes
+        InlineRun inlineRun = new InlineRun();
+        currentInlineRun.set(inlineRun);
+        try {
+            while (node != null) {
+                boolean completed = false;
+                try {
+                    node.run();
+                    completed = true;
+                } finally {
+                    if (!completed && inlineRun.next != null) {
+                        // Node failed after releasing a descendant, it must still run
+                        InitNode next = inlineRun.next;
+                        inlineRun.next = null;
+                        dispatch(next);
+                    }
+                }
+                node = inlineRun.next;
+                inlineRun.next = null;
+                inlineRun.depth++;
+            }
+        } finally {
+            currentInlineRun.remove();
+        }
+    }
+
+    private void dispatchFused(List<InitNode> nodes) {
+        for (int start = 0; start < nodes.size(); start += MAX_FUSED_NODES) {
+            // Even a single node, its tiny descendants can continue the task
+            List<InitNode> chunk = nodes.subList(start, Math.min(start + MAX_FUSED_NODES, nodes.size()));
+            FusedTask fusedTask = new FusedTask();
+            for (InitNode node : chunk) {
+                fusedTask.add(node);
+            }
+            try {
+                executor.execute(fusedTask);
+            } catch (RejectedExecutionException e) {
+                for (InitNode node : chunk) {
+                    completeRejected(node);
+                }
+            }
+        }
+    }
+
+    // Ready nodes are all queued before the first task runs, so that it takes the one with the highest priority
+    private void dispatchAll(List<InitNode> nodes) {
+        if (readyNodes == null) {
+            for (InitNode node : nodes) {
+                dispatch(node);
+            }
+            return;
+        }
+        for (InitNode node : nodes) {
+            node.enqueued();
+            readyNodes.add(node);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            try {
+                executor.execute(runNextReadyNode);
+            } catch (RejectedExecutionException e) {
+                // Queued nodes left are never run by the executor
+                for (; i < nodes.size(); i++) {
+                    InitNode node = readyNodes.poll();
+                    if (node != null) {
+                        completeRejected(node);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private void dispatch(InitNode node) {
+        node.enqueued();
+        try {
+            if (readyNodes == null) {
+                executor.execute(inlineDepth == 0 ? node : new NodeTask(node));
+            } else {
+                // Each submitted task runs the ready node with the highest priority at that time
+                readyNodes.add(node);
+                executor.execute(runNextReadyNode);
+            }
+        } catch (RejectedExecutionException e) {
+            if (readyNodes != null && !readyNodes.remove(node)) {
+                // Another ready node was removed instead, it is never run by the executor either
+                node = readyNodes.poll();
+            }
+            completeRejected(node);
+        }
+    }
+
+    private void completeRejected(InitNode node) {
+        // Executor was shutdown, complete nodes as cancelled on the calling thread.
+        // Completing a node makes its descendants ready, so they are queued
+        // and drained by a single thread instead of completed recursively.
+        rejectedNodes.add(node);
+        if (rejectedCount.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            InitNode rejectedNode = rejectedNodes.poll();
+            try {
+                rejectedNode.cancel();
+                rejectedNode.execute();
+            } catch (RuntimeException e) {
+                errorHandler.uncaughtException(Thread.currentThread(), e);
+            }
+        } while (rejectedCount.decrementAndGet() != 0);
+    }
+
+    // Runs tiny nodes one after the other on one thread, each node keeps its own error and cancel state
+    private class FusedTask implements Runnable {
+
+        private final Queue<InitNode> nodes = new ArrayDeque<>();
+        private int count = 0;
+
+        boolean add(InitNode node) {
+            if (count == MAX_FUSED_NODES) {
+                return false;
+            }
+            node.enqueued();
+            nodes.add(node);
+            count++;
+            return true;
+        }
+
+        @Override
+        public void run() {
+            currentFusedTask.set(this);
+            try {
+                InitNode node;
+                while ((node = nodes.poll()) != null) {
+                    try {
+                        node.execute();
+                    } catch (Throwable e) {
+                        // Reported as if the node was run alone, the next nodes still run
+                        errorHandler.uncaughtException(Thread.currentThread(), e);
+                    }
+                }
+            } finally {
+                currentFusedTask.remove();
+            }
+        }
+    }
+
+    private static class InlineRun {
+
+        // Number of nodes already run inline
+        private int depth = 0;
+        private InitNode next;
+    }
+
+    private class NodeTask implements Runnable {
+
+        private final InitNode node;
+
+        NodeTask(InitNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public void run() {
+            runNode(node);
+        }
+    }
+}
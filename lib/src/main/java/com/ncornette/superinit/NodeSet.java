@@ -0,0 +1,104 @@
+package com.ncornette.superinit;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Dependencies and descendants of a node, compared by identity, in insertion order.
+// Most nodes have a few of them: they are kept in an array and searched linearly,
+// an identity hash index is only built once the set grows past MAX_LINEAR nodes.
+final class NodeSet extends AbstractSet<InitNode> {
+
+    private static final int MAX_LINEAR = 8;
+
+    private InitNode[] elements = new InitNode[2];
+    private int size = 0;
+    // Open addressing table of the elements, at most half full, null while the set is small
+    private InitNode[] index;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                if (elements[i] == o) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        int mask = index.length - 1;
+        for (int i = System.identityHashCode(o) & mask; index[i] != null; i = (i + 1) & mask) {
+            if (index[i] == o) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean add(InitNode node) {
+        if (contains(node)) {
+            return false;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size + (size >> 1) + 1);
+        }
+        elements[size++] = node;
+        if (size > MAX_LINEAR) {
+            if (index == null || size * 2 > index.length) {
+                rebuildIndex();
+            } else {
+                insert(node);
+            }
+        }
+        return true;
+    }
+
+    private void rebuildIndex() {
+        index = new InitNode[Integer.highestOneBit(size * 4)];
+        for (int i = 0; i < size; i++) {
+            insert(elements[i]);
+        }
+    }
+
+    private void insert(InitNode node) {
+        int mask = index.length - 1;
+        int i = System.identityHashCode(node) & mask;
+        while (index[i] != null) {
+            i = (i + 1) & mask;
+        }
+        index[i] = node;
+    }
+
+    @Override
+    public Iterator<InitNode> iterator() {
+        return new Iterator<InitNode>() {
+
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public InitNode next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return elements[next++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package com.ncornette.superinit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Limits how many nodes using a resource run at the same time.
+// A ready node takes a permit of each of its limited resources before being dispatched. A node that can't
+// take them all waits in a list, without holding any permit and without blocking a thread, so the executor
+// runs other ready nodes meanwhile. Permits are released when the node is done, waiting nodes that fit are
+// then returned to be dispatched. Nodes are counted under a single lock, limited nodes are expected to be long.
+final class ResourceLimits {
+
+    private final int[] limits;
+    private final int[] running;
+    // Limited resources of each node by graph id, null when the node is not limited
+    private final int[][] nodeResources;
+    private final boolean[] holding;
+    // Null when waiting nodes are admitted in FIFO order
+    private final Comparator<InitNode> priority;
+    private final List<InitNode> waiting = new ArrayList<>();
+
+    private ResourceLimits(int[] limits, int[][] nodeResources, Comparator<InitNode> priority) {
+        this.limits = limits;
+        this.running = new int[limits.length];
+        this.nodeResources = nodeResources;
+        this.holding = new boolean[nodeResources.length];
+        this.priority = priority;
+    }
+
+    // Null when no node of the graph uses a limited resource
+    static ResourceLimits create(Map<String, Integer> maxConcurrency, NodeGraph graph,
+                                 Comparator<InitNode> priority) {
+        if (maxConcurrency.isEmpty()) {
+            return null;
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        int[] limits = new int[maxConcurrency.size()];
+        for (Map.Entry<String, Integer> entry : maxConcurrency.entrySet()) {
+            limits[ids.size()] = entry.getValue();
+            ids.put(entry.getKey(), ids.size());
+        }
+        boolean limited = false;
+        int[][] nodeResources = new int[graph.size()][];
+        for (int i = 0; i < graph.size(); i++) {
+            List<Integer> resources = null;
+            for (String resource : graph.nodes[i].resources()) {
+                Integer id = ids.get(resource);
+                if (id != null) {
+                    if (resources == null) {
+                        resources = new ArrayList<>(1);
+                    }
+                    resources.add(id);
+                }
+            }
+            if (resources != null) {
+                nodeResources[i] = new int[resources.size()];
+                for (int j = 0; j < resources.size(); j++) {
+                    nodeResources[i][j] = resources.get(j);
+                }
+                limited = true;
+            }
+        }
+        return limited ? new ResourceLimits(limits, nodeResources, priority) : null;
+    }
+
+    boolean limited(InitNode node) {
+        return nodeResources[node.graphId()] != null;
+    }
+
+    // False when the node waits for a permit, it is returned by release() once it got them all
+    synchronized boolean acquire(InitNode node) {
+        if (node.finished()) {
+            // Cancelled, it runs without permits since it is already done
+            return true;
+        }
+        int id = node.graphId();
+        if (!fits(id)) {
+            addWaiting(node);
+            return false;
+        }
+        take(id);
+        return true;
+    }
+
+    // Called when the node is done, returns waiting nodes that got their permits
+    synchronized List<InitNode> release(InitNode node) {
+        int id = node.graphId();
+        if (!holding[id]) {
+            return Collections.emptyList();
+        }
+        holding[id] = false;
+        for (int resource : nodeResources[id]) {
+            running[resource]--;
+        }
+        List<InitNode> admitted = null;
+        // A waiting node that doesn't fit doesn't hold back the next ones,
+        // a node using many resources can wait longer than others
+        Iterator<InitNode> iterator = waiting.iterator();
+        while (iterator.hasNext()) {
+            InitNode waitingNode = iterator.next();
+            int waitingId = waitingNode.graphId();
+            if (waitingNode.finished()) {
+                // Cancelled while waiting, nothing left to run
+                iterator.remove();
+            } else if (fits(waitingId)) {
+                iterator.remove();
+                take(waitingId);
+                if (admitted == null) {
+                    admitted = new ArrayList<>();
+                }
+                admitted.add(waitingNode);
+            }
+        }
+        return admitted != null ? admitted : Collections.<InitNode>emptyList();
+    }
+
+    private boolean fits(int id) {
+        for (int resource : nodeResources[id]) {
+            if (running[resource] >= limits[resource]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void take(int id) {
+        for (int resource : nodeResources[id]) {
+            running[resource]++;
+        }
+        holding[id] = true;
+    }
+
+    private void addWaiting(InitNode node) {
+        if (priority == null) {
+            waiting.add(node);
+            return;
+        }
+        // After nodes with the same priority
+        int index = waiting.size();
+        while (index > 0 && priority.compare(waiting.get(index - 1), node) > 0) {
+            index--;
+        }
+        waiting.add(index, node);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ncornette.superinit;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Runs the task of a failed node again, after an exponential backoff delay, before the node is reported in error.
+// Descendants keep waiting during retries. Immutable, each method returns a new policy.
+public final class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialDelayNanos;
+    private final double multiplier;
+    private final long maxDelayNanos;
+    private final double jitter;
+
+    private RetryPolicy(int maxAttempts, long initialDelayNanos, double multiplier, long maxDelayNanos, double jitter) {
+        this.maxAttempts = maxAttempts;
+        this.initialDelayNanos = initialDelayNanos;
+        this.multiplier = multiplier;
+        this.maxDelayNanos = maxDelayNanos;
+        this.jitter = jitter;
+    }
+
+    // Attempts include the first run, waits 100 ms before the first retry and doubles up to 30 s
+    public static RetryPolicy maxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be at least 1: " + maxAttempts);
+        }
+        return new RetryPolicy(maxAttempts, TimeUnit.MILLISECONDS.toNanos(100), 2, TimeUnit.SECONDS.toNanos(30), 0);
+    }
+
+    public RetryPolicy backoff(long initialDelay, TimeUnit unit) {
+        if (initialDelay < 0) {
+            throw new IllegalArgumentException("Delay must not be negative: " + initialDelay);
+        }
+        return new RetryPolicy(maxAttempts, unit.toNanos(initialDelay), multiplier, maxDelayNanos, jitter);
+    }
+
+    public RetryPolicy multiplier(double multiplier) {
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("Multiplier must be at least 1: " + multiplier);
+        }
+        return new RetryPolicy(maxAttempts, initialDelayNanos, multiplier, maxDelayNanos, jitter);
+    }
+
+    public RetryPolicy maxDelay(long maxDelay, TimeUnit unit) {
+        if (maxDelay < 0) {
+            throw new IllegalArgumentException("Delay must not be negative: " + maxDelay);
+        }
+        return new RetryPolicy(maxAttempts, initialDelayNanos, multiplier, unit.toNanos(maxDelay), jitter);
+    }
+
+    // Each delay is randomly changed by up to this fraction, between 0 and 1
+    public RetryPolicy jitter(double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1: " + jitter);
+        }
+        return new RetryPolicy(maxAttempts, initialDelayNanos, multiplier, maxDelayNanos, jitter);
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    // Delay before the given retry, 1 for the first one
+    long delayNanos(int retry) {
+        double delay = Math.min(maxDelayNanos, initialDelayNanos * Math.pow(multiplier, retry - 1));
+        if (jitter > 0) {
+            delay *= 1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        }
+        return (long) delay;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxAttempts=" + maxAttempts +
+                ", initialDelayNanos=" + initialDelayNanos +
+                ", multiplier=" + multiplier +
+                ", maxDelayNanos=" + maxDelayNanos +
+                ", jitter=" + jitter +
+                '}';
+    }
+}
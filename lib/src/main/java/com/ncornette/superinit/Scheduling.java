@@ -0,0 +1,13 @@
+package com.ncornette.superinit;
+
+public enum Scheduling {
+
+    // All nodes are submitted on load, each node waits for its dependencies on a pool thread
+    EAGER,
+
+    // A node is submitted only when all its dependencies are finished
+    ON_READY,
+
+    // Same as ON_READY, ready nodes with the longest path of remaining cost run first
+    CRITICAL_PATH
+}
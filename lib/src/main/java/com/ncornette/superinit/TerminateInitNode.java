@@ -9,23 +9,26 @@ public class TerminateInitNode extends InitNode {
 
     public TerminateInitNode(InitLoaderCallback loaderCallback) {
         this.loaderCallback = loaderCallback;
+        cost(0);
     }
 
     @Override
-    public void cancel() {
+    boolean markCancelled() {
         mCancelled.set(true);
         // Cannot be cancelled
-        //super.cancel();
-
+        return false;
     }
 
     @Override
     protected void runTask() {
         super.runTask();
 
+        if (loaderCallback == null) {
+            return;
+        }
         if (mCancelled.get()) {
             loaderCallback.onCancelled();
-        } else if (loaderCallback != null) {
+        } else {
             loaderCallback.onFinished();
         }
 
@@ -0,0 +1,53 @@
+package com.ncornette.superinit;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Timer shared by all loaders, a single daemon thread expires every node and load timeout.
+// Expired timeouts only claim and interrupt nodes on this thread, and hand the rest to the executor.
+final class Timeouts {
+
+    private Timeouts() {
+    }
+
+    private static class Holder {
+
+        static final ScheduledThreadPoolExecutor TIMER = newTimer();
+    }
+
+    private static ScheduledThreadPoolExecutor newTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "InitLoader-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // Most timeouts are cancelled when the node finishes in time
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    static ScheduledFuture<?> schedule(Runnable timeout, long delayNanos) {
+        return Holder.TIMER.schedule(timeout, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Runs the work of an expired timeout on the executor, keeping the timer free for the next timeouts.
+    // Runs it on the timer thread when there is no executor or it is shut down.
+    static void expire(Executor executor, Runnable expiry) {
+        if (executor != null) {
+            try {
+                executor.execute(expiry);
+                return;
+            } catch (RejectedExecutionException e) {
+                // Run it here
+            }
+        }
+        expiry.run();
+    }
+}
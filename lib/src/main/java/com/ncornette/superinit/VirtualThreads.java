@@ -0,0 +1,45 @@
+package com.ncornette.superinit;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// Virtual threads are only available from Java 21, they are created with reflection
+// so the library still runs on Java 7 and Android.
+final class VirtualThreads {
+
+    private static final ThreadFactory THREAD_FACTORY = virtualThreadFactory();
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        return THREAD_FACTORY != null;
+    }
+
+    static ExecutorService newThreadPerTaskExecutor() {
+        if (THREAD_FACTORY == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, THREAD_FACTORY);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Virtual threads are not available", e);
+        }
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, "InitLoader-virtual-thread-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.ncornette.superinit;
+
+import com.ncornette.superinit.InitLoaderTest.WaitTask;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.Assertions.within;
+
+public class InitLoaderAdaptiveTest {
+
+    private static final int NODE_COUNT = 200;
+    private static final int IO_DELAY = 5;
+
+    private AdaptiveThreadPool pool;
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_Adaptive_IO_Nodes() throws Exception {
+
+        // Given
+        InitNode root = new InitNode(new WaitTask("root", 0));
+        List<InitNode> ioNodes = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            ioNodes.add(new InitNode(new WaitTask("io-" + i, IO_DELAY)).dependsOn(root));
+        }
+        ioNodes.add(root);
+
+        // When
+        InitLoader initLoader = InitLoader.newAdaptiveLoader(1, 64);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        LoadResult result = initLoader.loadAsync(ioNodes).get();
+        initLoader.awaitTermination();
+
+        // Then
+        assertThat(result.success()).isTrue();
+    }
+
+    @Test
+    public void test_Adaptive_Pool_Grows_For_Blocking_Tasks() throws Exception {
+
+        // Given
+        int cores = Runtime.getRuntime().availableProcessors();
+        pool = new AdaptiveThreadPool(1, cores * 100, Executors.defaultThreadFactory());
+        long window = AdaptiveThreadPool.WINDOW_NANOS;
+
+        // When
+        // A single thread blocked 9/10 of the window
+        pool.resize(window / 10, window, window);
+
+        // Then
+        assertThat(pool.utilization()).isCloseTo(0.1, within(0.001));
+        assertThat(pool.getCorePoolSize()).isEqualTo(cores * 10);
+    }
+
+    @Test
+    public void test_Adaptive_Utilization_Smoothed() throws Exception {
+
+        // Given
+        int cores = Runtime.getRuntime().availableProcessors();
+        pool = new AdaptiveThreadPool(1, cores * 100, Executors.defaultThreadFactory());
+        long window = AdaptiveThreadPool.WINDOW_NANOS;
+
+        // Then
+        assertThat(pool.utilization()).isEqualTo(-1);
+
+        // When
+        pool.resize(window / 10, window, window);
+        pool.resize(window / 2, window, window);
+
+        // Then
+        // Average of the previous utilization and the last window
+        assertThat(pool.utilization()).isCloseTo(0.3, within(0.001));
+        assertThat(pool.getCorePoolSize()).isEqualTo(pool.targetThreads(0.3));
+
+        // When
+        // No task ended in the window
+        pool.resize(0, 0, window);
+
+        // Then
+        assertThat(pool.utilization()).isCloseTo(0.3, within(0.001));
+    }
+
+    @Test
+    public void test_Adaptive_Pool_Shrinks_When_Saturated() throws Exception {
+
+        // Given
+        int cores = Runtime.getRuntime().availableProcessors();
+        pool = new AdaptiveThreadPool(1, cores * 8, Executors.defaultThreadFactory());
+        pool.setCorePoolSize(cores * 4);
+        long window = AdaptiveThreadPool.WINDOW_NANOS;
+
+        // When
+        // 4 threads per core wait for a core, each one looks blocked 3/4 of the time
+        pool.resize(cores * window, cores * 4 * window, window);
+
+        // Then
+        assertThat(pool.getCorePoolSize()).isEqualTo(cores * 4 - 1);
+
+        // When
+        pool.resize(cores * window / 10, cores * 4 * window, window);
+
+        // Then
+        // Not saturated anymore, grows for blocking tasks
+        assertThat(pool.getCorePoolSize()).isGreaterThan(cores * 4 - 1);
+    }
+
+    @Test
+    public void test_Adaptive_Target_Threads() throws Exception {
+
+        // Given
+        int cores = Runtime.getRuntime().availableProcessors();
+        pool = new AdaptiveThreadPool(1, cores * 100, Executors.defaultThreadFactory());
+
+        // Then
+        assertThat(pool.targetThreads(1)).isEqualTo(cores);
+        assertThat(pool.targetThreads(0.1)).isEqualTo(cores * 10);
+        assertThat(pool.targetThreads(0)).isEqualTo(cores * 100);
+    }
+
+    @Test
+    public void test_Adaptive_Invalid_Bounds() throws Exception {
+        try {
+            InitLoader.newAdaptiveLoader(4, 2);
+            fail("Should throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessageContaining("Invalid thread bounds");
+        }
+    }
+}
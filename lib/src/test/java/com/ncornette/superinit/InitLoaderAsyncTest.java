@@ -0,0 +1,86 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+
+public class InitLoaderAsyncTest extends InitLoaderTestCase {
+
+    @Test
+    public void test_LoadAsync() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(runnableA);
+        InitNode nodeB = new InitNode(runnableB);
+        InitNode nodeC = new InitNode(runnableC);
+        nodeA.dependsOn(nodeB);
+        LoadFuture.Listener listener = mock(LoadFuture.Listener.class);
+
+        // When
+        initLoader = new InitLoader(3);
+        LoadFuture loadFuture = initLoader.loadAsync(nodeA, nodeB, nodeC);
+        loadFuture.whenDone(listener);
+        LoadResult result = loadFuture.get();
+
+        // Then
+        assertThat(loadFuture.isDone()).isTrue();
+        assertThat(result.success()).isTrue();
+        assertThat(result.nodes()).containsOnly(nodeA, nodeB, nodeC);
+        assertThat(result.nodes(LoadResult.Status.SUCCESS)).containsOnly(nodeA, nodeB, nodeC);
+        verify(listener, times(1)).onLoaded(result);
+    }
+
+    @Test
+    public void test_LoadAsync_Node_Error() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(runnableA);
+        InitNode nodeB = new InitNode(runnableB);
+        InitNode nodeError = new InitNode(new InitLoaderTest.WaitTaskError(0, "Error"));
+        nodeA.dependsOn(nodeError);
+
+        // When
+        initLoader = new InitLoader(3);
+        LoadResult result = initLoader.loadAsync(nodeA, nodeB, nodeError).get();
+
+        // Then
+        assertThat(result.success()).isFalse();
+        assertThat(result.status(nodeError)).isEqualTo(LoadResult.Status.ERROR);
+        assertThat(result.status(nodeA)).isEqualTo(LoadResult.Status.CANCELLED);
+        assertThat(result.status(nodeB)).isEqualTo(LoadResult.Status.SUCCESS);
+    }
+
+    @Test
+    public void test_LoadAsync_Cancel() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(runnableA);
+        InitNode nodeB = new InitNode(runnableB);
+        nodeA.dependsOn(nodeB);
+        LoadFuture.Listener listener = mock(LoadFuture.Listener.class);
+
+        // When
+        initLoader = new InitLoader(1);
+        LoadFuture loadFuture = initLoader.loadAsync(nodeA, nodeB);
+        loadFuture.whenDone(listener);
+        assertThat(loadFuture.cancel(false)).isTrue();
+
+        // Then
+        assertThat(loadFuture.isCancelled()).isTrue();
+        try {
+            loadFuture.get();
+            fail("Expected CancellationException");
+        } catch (CancellationException e) {
+            assertThat(nodeA.cancelled()).isTrue();
+        }
+        verify(listener, timeout(VERIFY_TIMEOUT).times(1)).onLoaded(any(LoadResult.class));
+    }
+}
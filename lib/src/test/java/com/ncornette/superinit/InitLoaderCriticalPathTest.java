@@ -0,0 +1,72 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class InitLoaderCriticalPathTest extends InitLoaderTestCase {
+
+    @Test
+    public void test_CriticalPath_First() throws Exception {
+
+        // Given
+        final List<String> executionOrder = new CopyOnWriteArrayList<>();
+        List<InitNode> nodes = new ArrayList<>();
+        InitNode previous = null;
+        for (int i = 0; i < 4; i++) {
+            nodes.add(new InitNode(new RecordTask("Independent" + i, executionOrder)));
+        }
+        for (int i = 0; i < 3; i++) {
+            InitNode chainNode = new InitNode(new RecordTask("Chain" + i, executionOrder)).cost(10);
+            if (previous != null) {
+                chainNode.dependsOn(previous);
+            }
+            nodes.add(chainNode);
+            previous = chainNode;
+        }
+
+        // When
+        initLoader = new InitLoader(1);
+        initLoader.setScheduling(Scheduling.CRITICAL_PATH);
+        initLoader.load(loaderCallback, nodes);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+        assertThat(executionOrder).hasSize(7);
+        assertThat(executionOrder.subList(0, 3)).containsExactly("Chain0", "Chain1", "Chain2");
+    }
+
+    @Test
+    public void test_CriticalPath_Computed() throws Exception {
+
+        // Given
+        // Critical paths: A 5 + 4, B 3, C 1 + 3, D 3
+        final List<String> executionOrder = new CopyOnWriteArrayList<>();
+        InitNode nodeA = new InitNode(new RecordTask("A", executionOrder)).cost(5);
+        InitNode nodeB = new InitNode(new RecordTask("B", executionOrder)).cost(3);
+        InitNode nodeC = new InitNode(new RecordTask("C", executionOrder)).cost(1);
+        InitNode nodeD = new InitNode(new RecordTask("D", executionOrder)).cost(3);
+        nodeB.dependsOn(nodeA);
+        nodeC.dependsOn(nodeA);
+        nodeD.dependsOn(nodeC);
+
+        // When
+        initLoader = new InitLoader(1);
+        initLoader.setScheduling(Scheduling.CRITICAL_PATH);
+        initLoader.load(loaderCallback, nodeA, nodeB, nodeC, nodeD);
+        initLoader.awaitTasks();
+
+        // Then
+        // B and C are ready together once A is done, C runs first for its descendant
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+        assertThat(executionOrder).hasSize(4);
+        assertThat(executionOrder.subList(0, 2)).containsExactly("A", "C");
+    }
+}
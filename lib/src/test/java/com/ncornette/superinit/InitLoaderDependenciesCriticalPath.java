@@ -0,0 +1,9 @@
+package com.ncornette.superinit;
+
+public class InitLoaderDependenciesCriticalPath extends InitLoaderDependenciesNoDelayRepeat {
+
+    @Override
+    protected Scheduling scheduling() {
+        return Scheduling.CRITICAL_PATH;
+    }
+}
@@ -0,0 +1,13 @@
+package com.ncornette.superinit;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class InitLoaderDependenciesForkJoin extends InitLoaderDependenciesNoDelayRepeat {
+
+    @Override
+    protected InitLoader newInitLoader(int nThreads) {
+        InitLoader initLoader = new InitLoader(new ForkJoinPool(nThreads));
+        initLoader.setScheduling(Scheduling.ON_READY);
+        return initLoader;
+    }
+}
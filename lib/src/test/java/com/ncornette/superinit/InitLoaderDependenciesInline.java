@@ -0,0 +1,17 @@
+package com.ncornette.superinit;
+
+public class InitLoaderDependenciesInline extends InitLoaderDependenciesNoDelayRepeat {
+
+    @Override
+    protected InitLoader newInitLoader(int nThreads) {
+        InitLoader initLoader = super.newInitLoader(nThreads);
+        initLoader.setInlineDepth(8);
+        initLoader.setFusionCost(0);
+        return initLoader;
+    }
+
+    @Override
+    protected Scheduling scheduling() {
+        return Scheduling.ON_READY;
+    }
+}
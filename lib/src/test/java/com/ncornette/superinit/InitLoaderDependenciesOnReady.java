@@ -0,0 +1,9 @@
+package com.ncornette.superinit;
+
+public class InitLoaderDependenciesOnReady extends InitLoaderDependenciesNoDelayRepeat {
+
+    @Override
+    protected Scheduling scheduling() {
+        return Scheduling.ON_READY;
+    }
+}
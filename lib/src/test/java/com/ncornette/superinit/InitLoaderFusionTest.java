@@ -0,0 +1,142 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.ncornette.superinit.InitNodeTest.nodeExecutionError;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+
+public class InitLoaderFusionTest extends InitLoaderTestCase {
+
+    @Test
+    public void test_Fusion_Chain() throws Exception {
+
+        // Given
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final AtomicInteger executedTasks = new AtomicInteger();
+        Executor countingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executedTasks.incrementAndGet();
+                executor.execute(command);
+            }
+        };
+        List<InitNode> chain = InitLoaderResolveTest.chain(100);
+
+        // When
+        initLoader = new InitLoader(countingExecutor);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.setFusionCost(1);
+        initLoader.load(loaderCallback, chain);
+        initLoader.awaitTasks();
+
+        // Then 101 nodes with the end node, run by fused tasks of 64 nodes
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+        assertThat(executedTasks.get()).isEqualTo(2);
+        for (InitNode node : chain) {
+            assertThat(node.success()).isTrue();
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void test_Fusion_Node_Error() throws Exception {
+
+        // Given
+        InitNode root = new InitNode();
+        List<InitNode> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (int i = 0; i < 10; i++) {
+            nodes.add(new InitNode().dependsOn(root));
+        }
+        InitNode nodeError = new InitNode(new InitLoaderTest.WaitTaskError(0, "Error")).dependsOn(root);
+        InitNode nodeAfterError = new InitNode(runnableA).dependsOn(nodeError);
+        InitNode nodeNotFused = new InitNode(runnableB).cost(10).dependsOn(root);
+        nodes.add(nodeError);
+        nodes.add(nodeAfterError);
+        nodes.add(nodeNotFused);
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.setFusionCost(1);
+        initLoader.load(loaderCallback, nodes);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onNodeError(argThat(nodeExecutionError(nodeError)));
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        verify(runnableA, times(0)).run();
+        verify(runnableB, times(1)).run();
+        assertThat(nodeAfterError.cancelled()).isTrue();
+        for (InitNode node : nodes.subList(0, 11)) {
+            assertThat(node.success()).isTrue();
+        }
+    }
+
+    @Test
+    public void test_Inline_Chain() throws Exception {
+        for (int inlineDepth : new int[]{100, 5}) {
+
+            // Given
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            final AtomicInteger executedTasks = new AtomicInteger();
+            Executor countingExecutor = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    executedTasks.incrementAndGet();
+                    executor.execute(command);
+                }
+            };
+            List<InitNode> chain = InitLoaderResolveTest.chain(20);
+            InitLoaderCallback callback = mock(InitLoaderCallback.class);
+
+            // When
+            InitLoader loader = new InitLoader(countingExecutor);
+            loader.setScheduling(Scheduling.ON_READY);
+            loader.setInlineDepth(inlineDepth);
+            loader.load(callback, chain);
+            loader.awaitTasks();
+
+            // Then 21 nodes with the end node, each task runs up to inlineDepth nodes after the first one
+            verify(callback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+            assertThat(executedTasks.get()).isEqualTo(inlineDepth == 100 ? 1 : 4);
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_Inline_Node_Error() throws Exception {
+
+        // Given
+        InitNode nodeError = new InitNode(new InitLoaderTest.WaitTaskError(0, "Error"));
+        InitNode nodeA = new InitNode(runnableA).dependsOn(nodeError);
+        InitNode nodeB = new InitNode(runnableB);
+        nodeError.dependsOn(nodeB);
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setScheduling(Scheduling.CRITICAL_PATH);
+        initLoader.setInlineDepth(10);
+        initLoader.load(loaderCallback, nodeA, nodeB, nodeError);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onNodeError(argThat(nodeExecutionError(nodeError)));
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        verify(runnableA, times(0)).run();
+        verify(runnableB, times(1)).run();
+        assertThat(nodeA.cancelled()).isTrue();
+    }
+}
@@ -0,0 +1,138 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+
+public class InitLoaderLazyTest extends InitLoaderTestCase {
+
+    @Test
+    public void test_Require_Concurrent_Requests_Eager_Single_Thread() throws Exception {
+        for (int run = 0; run < 20; run++) {
+
+            // Given
+            List<InitNode> chain = new ArrayList<>();
+            InitNode previous = null;
+            for (int i = 0; i < 50; i++) {
+                InitNode node = new InitNode();
+                if (previous != null) {
+                    node.dependsOn(previous);
+                }
+                chain.add(node);
+                previous = node;
+            }
+            initLoader = new InitLoader(1);
+            initLoader.setLazy(true);
+            initLoader.load(loaderCallback, chain);
+
+            // When
+            ExecutorService requests = Executors.newFixedThreadPool(4);
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<LoadResult>> results = new ArrayList<>();
+            for (int i = chain.size() - 1; i >= 0; i -= 7) {
+                final InitNode node = chain.get(i);
+                results.add(requests.submit(new Callable<LoadResult>() {
+                    @Override
+                    public LoadResult call() throws Exception {
+                        start.await();
+                        return initLoader.require(node).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+                    }
+                }));
+            }
+            start.countDown();
+
+            // Then
+            // A descendant queued before its dependency would hold the single thread forever
+            for (Future<LoadResult> result : results) {
+                assertThat(result.get().success()).isTrue();
+            }
+            requests.shutdown();
+            initLoader.awaitTermination();
+        }
+    }
+
+    @Test
+    public void test_Require_Invalid() throws Exception {
+
+        // Given
+        initLoader = new InitLoader(1);
+        initLoader.setLazy(true);
+
+        // Then
+        try {
+            initLoader.require(new InitNode(runnableA));
+            fail("Load is not called");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        // When
+        InitNode loaded = new InitNode(runnableA);
+        initLoader.load(loaderCallback, loaded);
+
+        // Then
+        try {
+            initLoader.require(new InitNode(runnableB));
+            fail("Node is not loaded");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        InitLoader otherLoader = new InitLoader(1);
+        InitNode foreign = new InitNode(runnableB);
+        otherLoader.setLazy(true);
+        otherLoader.load(loaderCallback, new InitNode(), new InitNode(), foreign);
+        try {
+            initLoader.require(foreign);
+            fail("Node is loaded by another loader");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        } finally {
+            otherLoader.cancel();
+        }
+        initLoader.require(loaded).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+        verify(runnableA, times(1)).run();
+        verify(runnableB, never()).run();
+    }
+
+    @Test
+    public void test_Require_Lazy_Spawn() throws Exception {
+
+        // Given
+        final InitNode notRequired = new InitNode(runnableA);
+        final InitNode spawned = new InitNode(runnableB);
+        InitNode root = new InitNode(new Runnable() {
+            @Override
+            public void run() {
+                initLoader.spawn(spawned.dependsOn(notRequired));
+            }
+        });
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.setLazy(true);
+        initLoader.load(loaderCallback, root, notRequired);
+        initLoader.require(root);
+        initLoader.awaitTasks();
+
+        // Then
+        // Dependencies of spawned nodes are required too
+        verify(runnableA, times(1)).run();
+        verify(runnableB, times(1)).run();
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+    }
+}
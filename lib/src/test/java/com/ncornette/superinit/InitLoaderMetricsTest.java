@@ -0,0 +1,125 @@
+package com.ncornette.superinit;
+
+import com.ncornette.superinit.InitLoaderTest.WaitTask;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+
+public class InitLoaderMetricsTest extends InitLoaderTestCase {
+
+    @Test
+    public void test_Metrics() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(runnableA);
+        InitNode nodeB = new InitNode(runnableB);
+        nodeB.dependsOn(nodeA);
+        ChromeTraceExporter exporter = new ChromeTraceExporter();
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setMetricsListener(exporter);
+        initLoader.load(loaderCallback, nodeA, nodeB);
+        initLoader.awaitTasks();
+
+        // Then
+        List<NodeMetrics> metrics = exporter.metrics();
+        assertThat(metrics).hasSize(2);
+        NodeMetrics metricsA = metrics.get(0);
+        NodeMetrics metricsB = metrics.get(1);
+        assertThat(metricsA.node()).isSameAs(nodeA);
+        assertThat(metricsB.node()).isSameAs(nodeB);
+        for (NodeMetrics nodeMetrics : metrics) {
+            assertThat(nodeMetrics.status()).isEqualTo(LoadResult.Status.SUCCESS);
+            assertThat(nodeMetrics.started()).isTrue();
+            assertThat(nodeMetrics.threadName()).startsWith("InitLoader-thread-");
+            assertThat(nodeMetrics.readyNanos() - nodeMetrics.enqueueNanos()).isGreaterThanOrEqualTo(0);
+            assertThat(nodeMetrics.queueNanos()).isGreaterThanOrEqualTo(0);
+            assertThat(nodeMetrics.runNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(40));
+        }
+        // B is ready when A ends
+        assertThat(metricsB.readyNanos()).isEqualTo(metricsA.endNanos());
+        String json = exporter.toJson();
+        assertThat(json).startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        assertThat(json).contains("\"name\":\"InitNode{WaitTask{'A', 40}}\"");
+        assertThat(json).contains("\"name\":\"thread_name\"");
+    }
+
+    @Test
+    public void test_Metrics_Cancelled() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(runnableA);
+        InitNode nodeError = new InitNode(new InitLoaderTest.WaitTaskError(0, "Error"));
+        nodeA.dependsOn(nodeError);
+        NodeMetricsListener metricsListener = mock(NodeMetricsListener.class);
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.setMetricsListener(metricsListener);
+        initLoader.load(loaderCallback, nodeA, nodeError);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(metricsListener, times(1)).onNodeMetrics(argThat(new ArgumentMatcher<NodeMetrics>() {
+            @Override
+            public boolean matches(Object argument) {
+                NodeMetrics metrics = (NodeMetrics) argument;
+                return metrics.status() == LoadResult.Status.CANCELLED && !metrics.started();
+            }
+        }));
+        verify(metricsListener, times(1)).onNodeMetrics(argThat(new ArgumentMatcher<NodeMetrics>() {
+            @Override
+            public boolean matches(Object argument) {
+                NodeMetrics metrics = (NodeMetrics) argument;
+                return metrics.status() == LoadResult.Status.ERROR && metrics.started();
+            }
+        }));
+    }
+
+    @Test
+    public void test_Node_Events() throws Exception {
+
+        // Given
+        InitNode nodeB = new InitNode(runnableB);
+        InitNode nodeError = new InitNode(new InitLoaderTest.WaitTaskError(0, "Error"));
+        InitNode nodeA = new InitNode(runnableA);
+        nodeError.dependsOn(nodeB);
+        nodeA.dependsOn(nodeError);
+        NodeEventListener eventListener = mock(NodeEventListener.class);
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setNodeEventListener(eventListener);
+        initLoader.load(loaderCallback, nodeA, nodeB, nodeError);
+        initLoader.awaitTasks();
+
+        // Then
+        InOrder inOrder = inOrder(eventListener);
+        inOrder.verify(eventListener).onStarted(nodeB);
+        inOrder.verify(eventListener).onFinished(nodeB);
+        inOrder.verify(eventListener).onUnlocked(nodeB);
+        inOrder.verify(eventListener).onStarted(nodeError);
+        inOrder.verify(eventListener).onFailed(eq(nodeError), any(RuntimeException.class));
+        inOrder.verify(eventListener).onCancelled(nodeA);
+        verify(eventListener).onUnlocked(nodeError);
+        verify(eventListener).onUnlocked(nodeA);
+        verify(eventListener, never()).onStarted(nodeA);
+        verify(eventListener, never()).onCancelled(nodeError);
+    }
+}
@@ -0,0 +1,86 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+
+public class InitLoaderMilestoneTest extends InitLoaderTestCase {
+
+    @Test
+    public void test_Milestone_Error() throws Exception {
+
+        // Given
+        InitNode nodeError = new InitNode(new InitLoaderTest.WaitTaskError(0, "Error"));
+        InitNode background = new InitNode(runnableA);
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        LoadFuture milestone = initLoader.addMilestone("serving-ready", nodeError);
+        initLoader.load(loaderCallback, nodeError, background);
+        LoadResult result = milestone.get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+        initLoader.awaitTasks();
+
+        // Then
+        assertThat(result.success()).isFalse();
+        assertThat(result.status(nodeError)).isEqualTo(LoadResult.Status.ERROR);
+        // Reached even with errors, next nodes still run
+        verify(runnableA, times(1)).run();
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+    }
+
+    @Test
+    public void test_Milestone_Invalid() throws Exception {
+
+        // Given
+        InitNode loaded = new InitNode(runnableA);
+        initLoader = new InitLoader(1);
+        initLoader.addMilestone("serving-ready", loaded);
+
+        // Then
+        try {
+            initLoader.addMilestone("serving-ready", loaded);
+            fail("Milestone already added");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            initLoader.milestone("fully-warm");
+            fail("Unknown milestone");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        // When
+        initLoader.load(loaderCallback, loaded);
+        initLoader.awaitTasks();
+
+        // Then
+        try {
+            initLoader.addMilestone("fully-warm", loaded);
+            fail("Load is called");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        // Given
+        InitLoader otherLoader = new InitLoader(1);
+        otherLoader.addMilestone("serving-ready", new InitNode(runnableB));
+
+        // Then
+        try {
+            otherLoader.load(loaderCallback, new InitNode(runnableB));
+            fail("Milestone node is not loaded");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        } finally {
+            otherLoader.shutdown();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class InitLoaderResolveTest {
+
+    @Test(timeout = 5000)
+    public void test_Resolve_Large_Graph() throws Exception {
+
+        // Given
+        // 200 layers of 100 nodes, each node depends on 3 nodes of the previous layer
+        List<InitNode> initNodes = randomLayeredGraph(200, 100, 3);
+        Collections.shuffle(initNodes, new Random(42));
+
+        // When
+        List<InitNode> resolved = new ArrayList<>();
+        InitLoader.dep_resolve(initNodes, resolved);
+
+        // Then
+        assertThat(resolved).hasSameSizeAs(initNodes);
+        assertResolvedOrder(resolved);
+    }
+
+    @Test
+    public void test_Resolve_Diamond_Once() throws Exception {
+
+        // Given
+        InitNode top = new InitNode();
+        InitNode left = new InitNode().dependsOn(top);
+        InitNode right = new InitNode().dependsOn(top);
+        InitNode bottom = new InitNode().dependsOn(left, right);
+
+        // When
+        List<InitNode> resolved = new ArrayList<>();
+        InitLoader.dep_resolve(Collections.singletonList(bottom), resolved);
+
+        // Then
+        assertThat(resolved).containsOnlyOnce(top, left, right, bottom);
+        assertThat(resolved.get(0)).isSameAs(top);
+        assertThat(resolved.get(3)).isSameAs(bottom);
+    }
+
+    @Test
+    public void test_Resolve_Long_Chain() throws Exception {
+
+        // Given
+        List<InitNode> chain = chain(100000);
+
+        // When
+        List<InitNode> resolved = new ArrayList<>();
+        InitLoader.dep_resolve(Collections.singletonList(chain.get(chain.size() - 1)), resolved);
+
+        // Then
+        assertThat(resolved).isEqualTo(chain);
+    }
+
+    @Test
+    public void test_NewNodesWithDescendants_Long_Chain() throws Exception {
+
+        // Given
+        List<InitNode> chain = chain(100000);
+
+        // When
+        Collection<InitNode> newNodes = InitNode.newNodesWithDescendants(chain.get(0));
+
+        // Then
+        assertThat(newNodes).hasSize(chain.size());
+        List<InitNode> resolved = new ArrayList<>();
+        InitLoader.dep_resolve(newNodes, resolved);
+        assertResolvedOrder(resolved);
+    }
+
+    @Test
+    public void test_NewNodesWithDescendants_Keeps_Dependencies() throws Exception {
+
+        // Given
+        InitNode top = new InitNode();
+        InitNode left = new InitNode().dependsOn(top);
+        InitNode right = new InitNode().dependsOn(top);
+        InitNode bottom = new InitNode().dependsOn(left, right);
+
+        // When
+        Collection<InitNode> newNodes = InitNode.newNodesWithDescendants(top);
+
+        // Then
+        assertThat(newNodes).hasSize(4);
+        for (InitNode newNode : newNodes) {
+            if (newNode.descendants().isEmpty()) {
+                assertThat(newNode.dependencies()).hasSize(2);
+            }
+        }
+    }
+
+    @Test
+    public void test_Resolve_Reject_Indirect_Circular_Dependencies() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode();
+        InitNode nodeB = new InitNode().dependsOn(nodeA);
+        InitNode nodeC = new InitNode().dependsOn(nodeB);
+        nodeA.dependsOn(nodeC);
+
+        try {
+
+            // When
+            InitLoader.dep_resolve(Collections.singletonList(nodeC), new ArrayList<InitNode>());
+            fail("Should fail with circular dependency.");
+        } catch (IllegalArgumentException e) {
+
+            // Then
+            assertThat(e.getMessage()).startsWith("Circular Dependency");
+        }
+    }
+
+    static List<InitNode> chain(int length) {
+        List<InitNode> nodes = new ArrayList<>(length);
+        InitNode previous = null;
+        for (int i = 0; i < length; i++) {
+            InitNode node = new InitNode();
+            if (previous != null) {
+                node.dependsOn(previous);
+            }
+            nodes.add(node);
+            previous = node;
+        }
+        return nodes;
+    }
+
+    static List<InitNode> randomLayeredGraph(int layers, int width, int degree) {
+        Random random = new Random(layers * width);
+        List<InitNode> nodes = new ArrayList<>();
+        List<InitNode> previousLayer = new ArrayList<>();
+        for (int layer = 0; layer < layers; layer++) {
+            List<InitNode> currentLayer = new ArrayList<>();
+            for (int i = 0; i < width; i++) {
+                InitNode node = new InitNode();
+                for (int d = 0; d < degree && !previousLayer.isEmpty(); d++) {
+                    node.dependsOn(previousLayer.get(random.nextInt(previousLayer.size())));
+                }
+                currentLayer.add(node);
+            }
+            nodes.addAll(currentLayer);
+            previousLayer = currentLayer;
+        }
+        return nodes;
+    }
+
+    static void assertResolvedOrder(List<InitNode> resolved) {
+        Set<InitNode> done = InitLoader.newIdentitySet();
+        boolean atStart = true;
+        for (InitNode initNode : resolved) {
+            if (initNode.dependencies().isEmpty()) {
+                assertThat(atStart).as("Orphan nodes are resolved first").isTrue();
+            } else {
+                atStart = false;
+            }
+            for (InitNode dependency : initNode.dependencies()) {
+                assertThat(done.contains(dependency)).as("Dependency resolved before %s", initNode).isTrue();
+            }
+            done.add(initNode);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class InitLoaderResourceLimitTest extends InitLoaderTestCase {
+
+    @Test
+    public void test_Resource_Limit_Many_Resources() throws Exception {
+
+        // Given
+        ConcurrencyTask dbTask = new ConcurrencyTask(20);
+        ConcurrencyTask diskTask = new ConcurrencyTask(20);
+        List<InitNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            nodes.add(new InitNode(dbTask).resources("db"));
+            nodes.add(new InitNode(diskTask).resources("disk", "db"));
+        }
+
+        // When
+        initLoader = new InitLoader(8);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.setResourceLimit("db", 3);
+        initLoader.setResourceLimit("disk", 1);
+        initLoader.load(loaderCallback, nodes);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+        assertThat(dbTask.runs.get() + diskTask.runs.get()).isEqualTo(12);
+        assertThat(dbTask.maxRunning.get()).isLessThanOrEqualTo(3);
+        assertThat(diskTask.maxRunning.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_Resource_Limit_Cancelled_Waiting_Nodes() throws Exception {
+
+        // Given
+        ConcurrencyTask dbTask = new ConcurrencyTask(200);
+        List<InitNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            nodes.add(new InitNode(dbTask).resources("db"));
+        }
+
+        // When
+        initLoader = new InitLoader(4);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.setResourceLimit("db", 1);
+        initLoader.load(loaderCallback, nodes);
+        while (dbTask.runs.get() == 0) {
+            Thread.sleep(5);
+        }
+        initLoader.cancel();
+        initLoader.awaitTasks();
+
+        // Then
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        assertThat(dbTask.runs.get()).isEqualTo(1);
+        for (InitNode node : nodes.subList(1, nodes.size())) {
+            assertThat(node.cancelled()).isTrue();
+        }
+    }
+}
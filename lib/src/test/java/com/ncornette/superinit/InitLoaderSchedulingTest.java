@@ -0,0 +1,391 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+
+public class InitLoaderSchedulingTest extends InitLoaderTestCase {
+
+    protected Scheduling scheduling() {
+        return Scheduling.EAGER;
+    }
+
+    protected InitLoader newInitLoader(int nThreads) {
+        InitLoader initLoader = new InitLoader(nThreads);
+        initLoader.setScheduling(scheduling());
+        return initLoader;
+    }
+
+    @Test
+    public void test_InitNode_Cancel_Long_Chain() throws Exception {
+
+        // Given
+        List<InitNode> chain = InitLoaderResolveTest.chain(100000);
+        InitLoaderCallback callback = mock(InitLoaderCallback.class);
+
+        // When
+        InitLoader loader = newInitLoader(2);
+        loader.load(callback, chain);
+        loader.cancel();
+        loader.awaitTermination();
+
+        // Then
+        verify(callback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        verify(callback, times(0)).onFinished();
+        for (InitNode node : chain) {
+            assertThat(node.finished()).isTrue();
+        }
+    }
+
+    @Test
+    public void test_Cancelled_Descendants_Not_Dispatched() throws Exception {
+        // EAGER scheduling submits every node when loading
+        assumeTrue(scheduling() != Scheduling.EAGER);
+
+        // Given
+        final AtomicInteger executedTasks = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        Executor countingExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                executedTasks.incrementAndGet();
+                executor.execute(command);
+            }
+        };
+        InitNode nodeError = new InitNode(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Error");
+            }
+        });
+        List<InitNode> nodes = new ArrayList<>();
+        nodes.add(nodeError);
+        for (int i = 0; i < 1000; i++) {
+            nodes.add(new InitNode(runnableA).dependsOn(nodeError));
+        }
+
+        // When
+        initLoader = new InitLoader(countingExecutor);
+        initLoader.setScheduling(scheduling());
+        LoadResult result = initLoader.loadAsync(nodes).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+        initLoader.awaitTermination();
+        executor.shutdown();
+
+        // Then
+        assertThat(result.nodes(LoadResult.Status.CANCELLED)).hasSize(1000);
+        // Only the node in error was run, descendants are unlocked by their cancellation
+        assertThat(executedTasks.get()).isEqualTo(1);
+        verify(runnableA, never()).run();
+    }
+
+    @Test
+    public void test_Node_Errors_Keep_Pool_Threads() throws Exception {
+
+        // Given
+        final Set<String> threadNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        List<InitNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            nodes.add(new InitNode(new Runnable() {
+                @Override
+                public void run() {
+                    threadNames.add(Thread.currentThread().getName());
+                    throw new IllegalStateException("Error");
+                }
+            }));
+        }
+        InitLoaderCallback callback = mock(InitLoaderCallback.class);
+
+        // When
+        initLoader = newInitLoader(4);
+        initLoader.load(callback, nodes);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(callback, timeout(VERIFY_TIMEOUT).times(1000)).onNodeError(any(NodeExecutionError.class));
+        verify(callback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        // Failed nodes don't kill the pool threads
+        assertThat(threadNames.size()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void test_Load_Completion_Wide_Graph() throws Exception {
+
+        // Given
+        List<InitNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            nodes.add(new InitNode());
+        }
+
+        // When
+        initLoader = newInitLoader(4);
+        LoadResult result = initLoader.loadAsync(nodes).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(result.success()).isTrue();
+        assertThat(result.nodes(LoadResult.Status.SUCCESS)).hasSize(50000);
+        // Completion is counted, the end node is not a descendant of every node
+        for (InitNode node : nodes) {
+            assertThat(node.descendants()).isEmpty();
+        }
+    }
+
+    @Test
+    public void test_Node_Retry() throws Exception {
+
+        // Given
+        FlakyTask flakyTask = new FlakyTask(2);
+        InitNode nodeFlaky = new InitNode(flakyTask)
+                .retryPolicy(RetryPolicy.maxAttempts(3).backoff(10, TimeUnit.MILLISECONDS));
+        InitNode nodeA = new InitNode(runnableA).dependsOn(nodeFlaky);
+        InitLoaderCallback callback = spy(new LogInitLoaderCallback());
+
+        // When
+        initLoader = newInitLoader(2);
+        initLoader.load(callback, nodeA, nodeFlaky);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(callback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+        verify(callback, times(0)).onNodeError(any(NodeExecutionError.class));
+        assertThat(flakyTask.attempts.get()).isEqualTo(3);
+        assertThat(nodeFlaky.success()).isTrue();
+        assertThat(nodeA.success()).isTrue();
+    }
+
+    @Test
+    public void test_Resource_Limit() throws Exception {
+        // Resource limits only apply with ON_READY and CRITICAL_PATH scheduling
+        assumeTrue(scheduling() != Scheduling.EAGER);
+
+        // Given
+        ConcurrencyTask dbTask = new ConcurrencyTask(30);
+        ConcurrencyTask otherTask = new ConcurrencyTask(30);
+        InitNode root = new InitNode(runnableA);
+        List<InitNode> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (int i = 0; i < 8; i++) {
+            nodes.add(new InitNode(dbTask).resources("db").dependsOn(root));
+            nodes.add(new InitNode(otherTask).dependsOn(root));
+        }
+        InitLoaderCallback callback = spy(new LogInitLoaderCallback());
+
+        // When
+        initLoader = newInitLoader(8);
+        initLoader.setResourceLimit("db", 2);
+        initLoader.load(callback, nodes);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(callback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+        assertThat(dbTask.runs.get()).isEqualTo(8);
+        assertThat(dbTask.maxRunning.get()).isEqualTo(2);
+        // Other nodes used the remaining threads
+        assertThat(otherTask.maxRunning.get()).isGreaterThan(2);
+    }
+
+    @Test
+    public void test_Spawn_Nodes() throws Exception {
+
+        // Given
+        final ConcurrencyTask shardTask = new ConcurrencyTask(2);
+        Runnable mergeTask = mock(Runnable.class);
+        final InitNode merge = new InitNode(mergeTask);
+        final List<InitNode> shards = new ArrayList<>();
+        final InitNode[] root = new InitNode[1];
+        root[0] = new InitNode(new Runnable() {
+            @Override
+            public void run() {
+                // Number of shards is known once the root node runs
+                for (int i = 0; i < 300; i++) {
+                    shards.add(new InitNode(shardTask).dependsOn(root[0]));
+                }
+                merge.dependsOn(shards);
+                List<InitNode> spawned = new ArrayList<>(shards);
+                spawned.add(merge);
+                initLoader.spawn(spawned);
+            }
+        });
+
+        // When
+        initLoader = newInitLoader(4);
+        LoadResult result = initLoader.loadAsync(root[0]).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(result.success()).isTrue();
+        assertThat(result.nodes(LoadResult.Status.SUCCESS)).hasSize(302).contains(merge);
+        assertThat(shardTask.runs.get()).isEqualTo(300);
+        assertThat(shardTask.maxRunning.get()).isGreaterThan(1);
+        verify(mergeTask, times(1)).run();
+    }
+
+    @Test
+    public void test_Spawn_Nodes_One_By_One() throws Exception {
+
+        // Given
+        // Loaded nodes are still submitted while the root spawns nodes one at a time
+        final InitNode[] root = new InitNode[1];
+        root[0] = new InitNode(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10000; i++) {
+                    initLoader.spawn(new InitNode().dependsOn(root[0]));
+                }
+            }
+        });
+        List<InitNode> nodes = new ArrayList<>();
+        nodes.add(root[0]);
+        for (int i = 0; i < 1000; i++) {
+            nodes.add(new InitNode());
+        }
+
+        // When
+        initLoader = newInitLoader(4);
+        LoadResult result = initLoader.loadAsync(nodes).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(result.success()).isTrue();
+        assertThat(result.nodes(LoadResult.Status.SUCCESS)).hasSize(11001);
+    }
+
+    @Test
+    public void test_Require_Ancestors() throws Exception {
+
+        // Given
+        Runnable taskA = mock(Runnable.class);
+        Runnable taskB = mock(Runnable.class);
+        Runnable taskC = mock(Runnable.class);
+        Runnable taskD = mock(Runnable.class);
+        Runnable taskE = mock(Runnable.class);
+        InitNode nodeA = new InitNode(taskA);
+        InitNode nodeB = new InitNode(taskB).dependsOn(nodeA);
+        InitNode nodeC = new InitNode(taskC);
+        InitNode nodeD = new InitNode(taskD).dependsOn(nodeB, nodeC);
+        InitNode nodeE = new InitNode(taskE).dependsOn(nodeA);
+
+        // When
+        initLoader = newInitLoader(4);
+        initLoader.setLazy(true);
+        initLoader.load(loaderCallback, nodeA, nodeB, nodeC, nodeD, nodeE);
+        LoadResult result = initLoader.require(nodeB).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(result.success()).isTrue();
+        assertThat(result.nodes()).containsExactly(nodeA, nodeB);
+        verify(taskA, times(1)).run();
+        verify(taskB, times(1)).run();
+        verify(taskC, never()).run();
+        verify(taskD, never()).run();
+        verify(taskE, never()).run();
+        verify(loaderCallback, never()).onFinished();
+
+        // When
+        result = initLoader.require(nodeD).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(result.nodes()).containsOnly(nodeA, nodeB, nodeC, nodeD);
+        verify(taskA, times(1)).run();
+        verify(taskB, times(1)).run();
+        verify(taskC, times(1)).run();
+        verify(taskD, times(1)).run();
+        verify(taskE, never()).run();
+
+        // When
+        initLoader.require(nodeE);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(taskE, times(1)).run();
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+    }
+
+    @Test
+    public void test_Require_Concurrent_Requests() throws Exception {
+
+        // Given
+        final ConcurrencyTask task = new ConcurrencyTask(1);
+        List<InitNode> nodes = new ArrayList<>();
+        InitNode root = new InitNode(task);
+        nodes.add(root);
+        for (int i = 0; i < 20; i++) {
+            InitNode node = new InitNode(task).dependsOn(root);
+            nodes.add(node);
+            nodes.add(new InitNode(task).dependsOn(node));
+        }
+        initLoader = newInitLoader(4);
+        initLoader.setLazy(true);
+        initLoader.load(loaderCallback, nodes);
+
+        // When
+        ExecutorService requests = Executors.newFixedThreadPool(4);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<LoadResult>> results = new ArrayList<>();
+        for (final InitNode node : nodes) {
+            results.add(requests.submit(new Callable<LoadResult>() {
+                @Override
+                public LoadResult call() throws Exception {
+                    start.await();
+                    return initLoader.require(node).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+                }
+            }));
+        }
+        start.countDown();
+
+        // Then
+        for (Future<LoadResult> result : results) {
+            assertThat(result.get().success()).isTrue();
+        }
+        requests.shutdown();
+        assertThat(task.runs.get()).isEqualTo(nodes.size());
+    }
+
+    @Test
+    public void test_Milestones() throws Exception {
+
+        // Given
+        final List<String> executionOrder = new CopyOnWriteArrayList<>();
+        InitNode background = new InitNode(new RecordTask("Background", executionOrder));
+        InitNode config = new InitNode(new RecordTask("Config", executionOrder));
+        InitNode http = new InitNode(new RecordTask("Http", executionOrder)).dependsOn(config);
+        InitNode cache = new InitNode(new RecordTask("Cache", executionOrder)).dependsOn(config);
+
+        // When
+        initLoader = newInitLoader(1);
+        LoadFuture servingReady = initLoader.addMilestone("serving-ready", http);
+        LoadFuture fullyWarm = initLoader.addMilestone("fully-warm", cache);
+        initLoader.load(loaderCallback, background, cache, http, config);
+        LoadResult servingResult = servingReady.get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+        initLoader.awaitTasks();
+
+        // Then
+        assertThat(servingResult.success()).isTrue();
+        assertThat(servingResult.nodes()).containsExactly(http);
+        assertThat(fullyWarm.get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS).success()).isTrue();
+        assertThat(initLoader.milestone("serving-ready")).isSameAs(servingReady);
+        // Nodes of no milestone run last
+        assertThat(executionOrder).containsExactly("Config", "Http", "Cache", "Background");
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+    }
+}
@@ -0,0 +1,9 @@
+package com.ncornette.superinit;
+
+public class InitLoaderSchedulingTestCriticalPath extends InitLoaderSchedulingTest {
+
+    @Override
+    protected Scheduling scheduling() {
+        return Scheduling.CRITICAL_PATH;
+    }
+}
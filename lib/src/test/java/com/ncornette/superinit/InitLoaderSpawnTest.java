@@ -0,0 +1,90 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class InitLoaderSpawnTest extends InitLoaderTestCase {
+
+    @Test
+    public void test_Spawn_Nodes_Dependency_Error() throws Exception {
+
+        // Given
+        final InitNode spawned = new InitNode(runnableA);
+        final InitNode[] root = new InitNode[1];
+        root[0] = new InitNode(new Runnable() {
+            @Override
+            public void run() {
+                initLoader.spawn(spawned.dependsOn(root[0]));
+                throw new IllegalStateException("Error after spawn");
+            }
+        });
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.load(loaderCallback, root[0]);
+        initLoader.awaitTasks();
+
+        // Then
+        assertThat(root[0].error()).isTrue();
+        assertThat(spawned.cancelled()).isTrue();
+        verify(runnableA, never()).run();
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+    }
+
+    @Test
+    public void test_Spawn_Nodes_Invalid() throws Exception {
+
+        // Given
+        InitNode loaded = new InitNode(runnableA);
+        initLoader = new InitLoader(1);
+        initLoader.load(loaderCallback, loaded);
+        initLoader.awaitTasks();
+        InitNode node1 = new InitNode(runnableB);
+        InitNode node2 = new InitNode(runnableB).dependsOn(node1);
+        InitNode node3 = new InitNode(runnableB).dependsOn(node2);
+        node1.dependsOn(node3);
+
+        // Then
+        try {
+            initLoader.spawn(node1, node2, node3);
+            fail("Circular dependency");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            initLoader.spawn(new InitNode().dependsOn(new InitNode()));
+            fail("Dependency is not loaded");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            initLoader.spawn(loaded);
+            fail("Node is already loaded");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        InitNode foreign = new InitNode();
+        InitLoader otherLoader = new InitLoader(1);
+        otherLoader.load(loaderCallback, foreign);
+        otherLoader.awaitTermination();
+        try {
+            initLoader.spawn(new InitNode(runnableB).dependsOn(foreign));
+            fail("Dependency is loaded by another loader");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            initLoader.spawn(new InitNode(runnableB));
+            fail("Load is complete");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        verify(runnableB, never()).run();
+    }
+}
@@ -77,6 +77,16 @@ public abstract class InitLoaderTest {
         return 50;
     }
 
+    protected Scheduling scheduling() {
+        return Scheduling.EAGER;
+    }
+
+    protected InitLoader newInitLoader(int nThreads) {
+        InitLoader initLoader = new InitLoader(nThreads);
+        initLoader.setScheduling(scheduling());
+        return initLoader;
+    }
+
     protected abstract void setupDependencies();
 
     @Test
@@ -86,7 +96,7 @@ public abstract class InitLoaderTest {
         setupDependencies();
 
         // When
-        initLoader = new InitLoader(1);
+        initLoader = newInitLoader(1);
         // Need at least one delayed task.
         TestInitNode wait = new TestInitNode(new WaitTask("Wait", 20));
         initNodes.get(0).dependsOn(wait);
@@ -110,7 +120,7 @@ public abstract class InitLoaderTest {
         setupDependencies();
 
         // When
-        initLoader = new InitLoader(1);
+        initLoader = newInitLoader(1);
         initLoader.load(spyLoadedCallback, initNodes);
 
         // Then
@@ -124,7 +134,7 @@ public abstract class InitLoaderTest {
         setupDependencies();
 
         // When
-        initLoader = new InitLoader(2);
+        initLoader = newInitLoader(2);
         initLoader.load(spyLoadedCallback, initNodes);
 
         // Then
@@ -138,7 +148,7 @@ public abstract class InitLoaderTest {
         setupDependencies();
 
         // When
-        initLoader = new InitLoader(3);
+        initLoader = newInitLoader(3);
         initLoader.load(spyLoadedCallback, initNodes);
 
         // Then
@@ -152,7 +162,7 @@ public abstract class InitLoaderTest {
         setupDependencies();
 
         // When
-        initLoader = new InitLoader(5);
+        initLoader = newInitLoader(5);
         initLoader.load(spyLoadedCallback, initNodes);
 
         // Then
@@ -166,7 +176,7 @@ public abstract class InitLoaderTest {
         setupDependencies();
 
         // When
-        initLoader = new InitLoader(9);
+        initLoader = newInitLoader(9);
         initLoader.load(spyLoadedCallback, initNodes);
 
         // Then
@@ -202,7 +212,7 @@ public abstract class InitLoaderTest {
         try {
 
             // When
-            initLoader = new InitLoader(6);
+            initLoader = newInitLoader(6);
             initLoader.load(spyLoadedCallback, initNodes);
             fail("Should fail with circular dependency.");
         } catch (IllegalArgumentException e) {
@@ -268,7 +278,7 @@ public abstract class InitLoaderTest {
         initNodes.add(errorNode);
 
         // When
-        initLoader = new InitLoader(6);
+        initLoader = newInitLoader(6);
         initLoader.load(spyLoadedCallback, initNodes);
 
         // Then
@@ -0,0 +1,152 @@
+package com.ncornette.superinit;
+
+import com.ncornette.superinit.InitLoaderTest.WaitTask;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.spy;
+
+// Tasks, callback and loader shared by the node and loader feature tests
+public abstract class InitLoaderTestCase {
+
+    static final long VERIFY_TIMEOUT = 3000;
+
+    Runnable runnableA;
+    Runnable runnableB;
+    Runnable runnableC;
+    InitLoaderCallback loaderCallback;
+    InitLoader initLoader;
+
+    @Before
+    public void setUp() throws Exception {
+
+        runnableA = spy(new WaitTask("A", 40));
+        runnableB = spy(new WaitTask("B", 40));
+        runnableC = spy(new WaitTask("C", 40));
+
+        loaderCallback = spy(new LogInitLoaderCallback());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (initLoader != null) {
+            initLoader.awaitTermination();
+        }
+    }
+
+    // Records the highest number of concurrent runs
+    static class ConcurrencyTask implements Runnable {
+
+        private final long millis;
+        final AtomicInteger runs = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        ConcurrencyTask(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public void run() {
+            runs.incrementAndGet();
+            int current = running.incrementAndGet();
+            int max;
+            while ((max = maxRunning.get()) < current && !maxRunning.compareAndSet(max, current)) {
+                // Updated by another run
+            }
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Interrupted", e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    // Fails the first attempts
+    static class FlakyTask implements Runnable {
+
+        private final int failures;
+        final AtomicInteger attempts = new AtomicInteger();
+
+        FlakyTask(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void run() {
+            if (attempts.incrementAndGet() <= failures) {
+                throw new IllegalStateException("Attempt " + attempts.get() + " failed");
+            }
+        }
+    }
+
+    static class RecordTask implements Runnable {
+
+        private final String name;
+        private final List<String> executionOrder;
+
+        RecordTask(String name, List<String> executionOrder) {
+            this.name = name;
+            this.executionOrder = executionOrder;
+        }
+
+        @Override
+        public void run() {
+            executionOrder.add(name);
+        }
+    }
+
+    static class EmptyNodeEventListener implements NodeEventListener {
+
+        @Override
+        public void onStarted(InitNode node) {
+        }
+
+        @Override
+        public void onFinished(InitNode node) {
+        }
+
+        @Override
+        public void onFailed(InitNode node, Throwable error) {
+        }
+
+        @Override
+        public void onCancelled(InitNode node) {
+        }
+
+        @Override
+        public void onUnlocked(InitNode node) {
+        }
+    }
+
+    static class LogInitLoaderCallback implements InitLoaderCallback {
+
+        @Override
+        public void onFinished() {
+            System.out.println("---> onFinished()");
+        }
+
+        @Override
+        public void onNodeError(NodeExecutionError nodeError) {
+            System.out.println("---> onNodeError()");
+            System.out.print("---> "); nodeError.printStackTrace(System.out);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            System.out.println("---> onError()");
+            System.out.print("---> "); error.printStackTrace(System.out);
+        }
+
+        @Override
+        public void onCancelled() {
+            System.out.println("---> onCancelled()");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.ncornette.superinit;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class InitLoaderTestSerialForkJoin extends InitLoaderTestSerial {
+
+    @Override
+    protected InitLoader newInitLoader(int nThreads) {
+        // Waiting nodes are managed blockers, the pool compensates with new threads
+        InitLoader initLoader = new InitLoader(new ForkJoinPool(nThreads));
+        initLoader.setScheduling(Scheduling.EAGER);
+        return initLoader;
+    }
+}
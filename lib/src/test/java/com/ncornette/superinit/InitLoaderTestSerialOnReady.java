@@ -0,0 +1,9 @@
+package com.ncornette.superinit;
+
+public class InitLoaderTestSerialOnReady extends InitLoaderTestSerial {
+
+    @Override
+    protected Scheduling scheduling() {
+        return Scheduling.ON_READY;
+    }
+}
@@ -0,0 +1,138 @@
+package com.ncornette.superinit;
+
+import com.ncornette.superinit.InitLoaderTest.WaitTask;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.ncornette.superinit.InitNodeTest.nodeExecutionError;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+
+public class InitLoaderTimeoutTest extends InitLoaderTestCase {
+
+    private static final String TIMER_THREAD = "InitLoader-timer";
+
+    @Test
+    public void test_Node_Timeout() throws Exception {
+
+        // Given
+        InitNode nodeSlow = new InitNode(new WaitTask("Slow", 10000)).timeout(100, TimeUnit.MILLISECONDS);
+        InitNode nodeA = new InitNode(runnableA).dependsOn(nodeSlow);
+        InitNode nodeB = new InitNode(runnableB).timeout(5, TimeUnit.SECONDS);
+
+        // When
+        long start = System.nanoTime();
+        initLoader = new InitLoader(3);
+        initLoader.load(loaderCallback, nodeA, nodeB, nodeSlow);
+        initLoader.awaitTasks();
+
+        // Then
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onNodeError(argThat(nodeExecutionError(nodeSlow)));
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        assertThat(nodeSlow.getError()).isInstanceOf(TimeoutException.class);
+        assertThat(nodeA.cancelled()).isTrue();
+        assertThat(nodeB.success()).isTrue();
+        verify(runnableA, times(0)).run();
+    }
+
+    @Test
+    public void test_Load_Timeout() throws Exception {
+
+        // Given
+        InitNode nodeSlow1 = new InitNode(new WaitTask("Slow1", 10000));
+        InitNode nodeSlow2 = new InitNode(new WaitTask("Slow2", 10000));
+        InitNode nodeA = new InitNode(runnableA).dependsOn(nodeSlow1, nodeSlow2);
+        InitNode nodeC = new InitNode(runnableC);
+
+        // When
+        long start = System.nanoTime();
+        initLoader = new InitLoader(2);
+        initLoader.setTimeout(200, TimeUnit.MILLISECONDS);
+        initLoader.load(loaderCallback, nodeA, nodeSlow1, nodeSlow2, nodeC);
+        initLoader.awaitTasks();
+
+        // Then
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onNodeError(argThat(nodeExecutionError(nodeSlow1)));
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onNodeError(argThat(nodeExecutionError(nodeSlow2)));
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        verify(loaderCallback, times(0)).onFinished();
+        assertThat(nodeA.cancelled()).isTrue();
+        // Not started before the deadline, both threads were busy
+        assertThat(nodeC.cancelled()).isTrue();
+    }
+
+    @Test
+    public void test_Node_Timeout_Expires_On_Executor() throws Exception {
+
+        // Given
+        InitNode nodeSlow = new InitNode(new WaitTask("Slow", 10000)).timeout(100, TimeUnit.MILLISECONDS);
+        InitNode nodeA = new InitNode(runnableA).dependsOn(nodeSlow);
+        ThreadsListener threadsListener = new ThreadsListener();
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setNodeEventListener(threadsListener);
+        initLoader.load(loaderCallback, nodeA, nodeSlow);
+        initLoader.awaitTasks();
+
+        // Then
+        assertThat(nodeSlow.getError()).isInstanceOf(TimeoutException.class);
+        assertThat(nodeA.cancelled()).isTrue();
+        // Failure and cancellation run on the executor, not on the shared timer thread
+        assertThat(threadsListener.threads).hasSize(3).doesNotContain(TIMER_THREAD);
+    }
+
+    @Test
+    public void test_Load_Timeout_Expires_On_Executor() throws Exception {
+
+        // Given
+        InitNode nodeSlow = new InitNode(new WaitTask("Slow", 10000));
+        InitNode nodeA = new InitNode(runnableA).dependsOn(nodeSlow);
+        ThreadsListener threadsListener = new ThreadsListener();
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setTimeout(100, TimeUnit.MILLISECONDS);
+        initLoader.setNodeEventListener(threadsListener);
+        initLoader.load(loaderCallback, nodeA, nodeSlow);
+        initLoader.awaitTasks();
+
+        // Then
+        assertThat(nodeSlow.getError()).isInstanceOf(TimeoutException.class);
+        assertThat(nodeA.cancelled()).isTrue();
+        assertThat(threadsListener.threads).hasSize(3).doesNotContain(TIMER_THREAD);
+    }
+
+    // Names of the threads reporting failed, cancelled and unlocked nodes
+    private static class ThreadsListener extends EmptyNodeEventListener {
+
+        final List<String> threads = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onFailed(InitNode node, Throwable error) {
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void onCancelled(InitNode node) {
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void onUnlocked(InitNode node) {
+            if (node.error()) {
+                threads.add(Thread.currentThread().getName());
+            }
+        }
+    }
+}
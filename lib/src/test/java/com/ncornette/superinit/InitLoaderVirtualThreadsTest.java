@@ -0,0 +1,123 @@
+package com.ncornette.superinit;
+
+import com.ncornette.superinit.InitLoaderTest.WaitTask;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class InitLoaderVirtualThreadsTest {
+
+    private static final long VERIFY_TIMEOUT = 10000;
+    private static final int NODE_COUNT = 100;
+    // Above the default number of carrier threads, 256
+    private static final int WAITING_NODE_COUNT = 1000;
+
+    @Test
+    public void test_VirtualThreads_Nodes_Run_On_Virtual_Threads() throws Exception {
+        assumeTrue(InitLoader.virtualThreadsSupported());
+
+        // Given
+        // A root node, blocking nodes depending on it, and a node depending on all of them
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+        Runnable recordThread = new Runnable() {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread());
+            }
+        };
+        InitNode root = new InitNode(recordThread);
+        InitNode last = new InitNode(recordThread);
+        List<InitNode> nodes = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            InitNode node = new InitNode(recordThread).dependsOn(root);
+            last.dependsOn(node);
+            nodes.add(node);
+        }
+        nodes.add(root);
+        nodes.add(last);
+
+        // When
+        InitLoader initLoader = InitLoader.newVirtualThreadLoader();
+        LoadResult result = initLoader.loadAsync(nodes).get();
+        initLoader.awaitTermination();
+
+        // Then
+        assertThat(result.success()).isTrue();
+        assertThat(threads).hasSize(NODE_COUNT + 2);
+        for (Thread thread : threads) {
+            assertThat(isVirtual(thread)).isTrue();
+        }
+    }
+
+    @Test
+    public void test_VirtualThreads_Eager_Waiting_Nodes() throws Exception {
+        assumeTrue(InitLoader.virtualThreadsSupported());
+
+        // Given
+        // More EAGER nodes waiting for a slow root than carrier threads, waiting nodes must release them
+        InitNode root = new InitNode(new WaitTask("root", 100));
+        List<InitNode> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (int i = 0; i < WAITING_NODE_COUNT; i++) {
+            nodes.add(new InitNode(new WaitTask("waiting-" + i, 0)).dependsOn(root));
+        }
+
+        // When
+        InitLoader initLoader = InitLoader.newVirtualThreadLoader();
+        initLoader.setScheduling(Scheduling.EAGER);
+        LoadResult result = initLoader.loadAsync(nodes).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+        initLoader.awaitTermination();
+
+        // Then
+        assertThat(result.success()).isTrue();
+        assertThat(result.nodes(LoadResult.Status.SUCCESS)).hasSize(WAITING_NODE_COUNT + 1);
+    }
+
+    @Test
+    public void test_VirtualThreads_Unsupported() throws Exception {
+        assumeFalse(InitLoader.virtualThreadsSupported());
+
+        // When
+        try {
+            InitLoader.newVirtualThreadLoader();
+            fail("Should throw UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // Then
+            assertThat(e).hasMessageContaining("Java 21");
+        }
+    }
+
+    @Test
+    public void test_VirtualThreads_Task_Error() throws Exception {
+        assumeTrue(InitLoader.virtualThreadsSupported());
+
+        // Given
+        InitNode nodeError = new InitNode(new InitLoaderTest.WaitTaskError(0, "Error"));
+        InitNode nodeA = new InitNode(new WaitTask("A", 0)).dependsOn(nodeError);
+        InitNode nodeB = new InitNode(new WaitTask("B", 0));
+
+        // When
+        InitLoader initLoader = InitLoader.newVirtualThreadLoader();
+        LoadResult result = initLoader.loadAsync(nodeA, nodeB, nodeError).get();
+        initLoader.awaitTermination();
+
+        // Then
+        assertThat(result.status(nodeError)).isEqualTo(LoadResult.Status.ERROR);
+        assertThat(result.status(nodeA)).isEqualTo(LoadResult.Status.CANCELLED);
+        assertThat(result.status(nodeB)).isEqualTo(LoadResult.Status.SUCCESS);
+    }
+
+    // Thread.isVirtual() is only available from Java 21
+    private static boolean isVirtual(Thread thread) throws Exception {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+}
@@ -0,0 +1,103 @@
+package com.ncornette.superinit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.ncornette.superinit.InitNodeTest.nodeExecutionError;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.internal.verification.VerificationModeFactory.times;
+
+public class InitNodeRetryTest extends InitLoaderTestCase {
+
+    @Test
+    public void test_Node_Retry_Exhausted() throws Exception {
+
+        // Given
+        FlakyTask flakyTask = new FlakyTask(5);
+        InitNode nodeFlaky = new InitNode(flakyTask)
+                .retryPolicy(RetryPolicy.maxAttempts(3).backoff(10, TimeUnit.MILLISECONDS).jitter(0.5));
+        InitNode nodeA = new InitNode(runnableA).dependsOn(nodeFlaky);
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.load(loaderCallback, nodeA, nodeFlaky);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onNodeError(argThat(nodeExecutionError(nodeFlaky)));
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        assertThat(flakyTask.attempts.get()).isEqualTo(3);
+        assertThat(nodeFlaky.error()).isTrue();
+        assertThat(nodeA.cancelled()).isTrue();
+        verify(runnableA, times(0)).run();
+    }
+
+    @Test
+    public void test_Node_Retry_Cancelled_During_Backoff() throws Exception {
+
+        // Given
+        FlakyTask flakyTask = new FlakyTask(1);
+        InitNode nodeFlaky = new InitNode(flakyTask)
+                .retryPolicy(RetryPolicy.maxAttempts(2).backoff(10, TimeUnit.SECONDS));
+        InitNode nodeA = new InitNode(runnableA).dependsOn(nodeFlaky);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Runnable probe = mock(Runnable.class);
+
+        // When
+        initLoader = new InitLoader(executor);
+        initLoader.load(loaderCallback, nodeA, nodeFlaky);
+        while (flakyTask.attempts.get() == 0) {
+            Thread.sleep(5);
+        }
+        // nodeA holds a thread, the other one runs the probe once nodeFlaky released it for its backoff
+        executor.submit(probe).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+        initLoader.cancel();
+        initLoader.awaitTasks();
+        executor.shutdown();
+
+        // Then
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        verify(loaderCallback, times(0)).onNodeError(any(NodeExecutionError.class));
+        assertThat(flakyTask.attempts.get()).isEqualTo(1);
+        assertThat(nodeFlaky.cancelled()).isTrue();
+        assertThat(nodeA.cancelled()).isTrue();
+    }
+
+    @Test
+    public void test_Node_Retry_Eager_Waiting_Descendants() throws Exception {
+
+        // Given
+        FlakyTask flakyTask = new FlakyTask(2);
+        InitNode nodeFlaky = new InitNode(flakyTask)
+                .retryPolicy(RetryPolicy.maxAttempts(3).backoff(10, TimeUnit.MILLISECONDS));
+        List<InitNode> nodes = new ArrayList<>();
+        nodes.add(nodeFlaky);
+        for (int i = 0; i < 4; i++) {
+            nodes.add(new InitNode(runnableA).dependsOn(nodeFlaky));
+        }
+
+        // When
+        // The descendants wait on the only thread, the retry is queued behind them
+        initLoader = new InitLoader(1);
+        initLoader.setScheduling(Scheduling.EAGER);
+        initLoader.load(loaderCallback, nodes);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+        verify(loaderCallback, times(0)).onNodeError(any(NodeExecutionError.class));
+        assertThat(flakyTask.attempts.get()).isEqualTo(3);
+        verify(runnableA, times(4)).run();
+    }
+}
@@ -3,11 +3,16 @@ package com.ncornette.superinit;
 import com.ncornette.superinit.InitLoaderTest.WaitTask;
 
 import org.junit.After;
-import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
 import org.mockito.InOrder;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.any;
@@ -19,27 +24,10 @@ import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 
-public class InitNodeTest {
-
-    private static final long VERIFY_TIMEOUT = 3000;
-
-    private Runnable runnableA;
-    private Runnable runnableB;
-    private Runnable runnableC;
-    private InitLoaderCallback loaderCallback;
-    private InitLoader initLoader;
-
-    @Before
-    public void setUp() throws Exception {
-
-        runnableA = spy(new WaitTask("A", 40));
-        runnableB = spy(new WaitTask("B", 40));
-        runnableC = spy(new WaitTask("C", 40));
-
-        loaderCallback = spy(new LogInitLoaderCallback());
-    }
+public class InitNodeTest extends InitLoaderTestCase {
 
     @After
+    @Override
     public void tearDown() throws Exception {
         if (initLoader == null) {
             System.out.println("No initLoader for this test");
@@ -105,6 +93,223 @@ public class InitNodeTest {
         verify(runnableA, times(1)).run();
     }
 
+    @Test
+    public void test_InitNode_OnReady_Does_Not_Block_Threads() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(runnableA);
+        InitNode nodeB = new InitNode(new WaitTask("B", 1000));
+        InitNode nodeC = new InitNode(runnableC);
+        Runnable runnableD = spy(new WaitTask("D", 0));
+        InitNode nodeD = new InitNode(runnableD);
+
+        nodeA.dependsOn(nodeB);
+        nodeD.dependsOn(nodeC);
+
+        // When
+        initLoader = new InitLoader(2);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.load(loaderCallback, nodeA, nodeB, nodeC, nodeD);
+
+        // Then
+        verify(runnableD, timeout(VERIFY_TIMEOUT).times(1)).run();
+        assertThat(nodeB.finished()).isFalse();
+        verify(runnableA, times(0)).run();
+
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onFinished();
+        verify(runnableA, times(1)).run();
+    }
+
+    @Test
+    public void test_InitNode_Cancel_Diamonds() throws Exception {
+
+        // Given 40 diamonds in a row, 2^40 paths from the first node to the last one
+        List<InitNode> nodes = new ArrayList<>();
+        InitNode previous = new InitNode();
+        nodes.add(previous);
+        for (int i = 0; i < 40; i++) {
+            InitNode left = new InitNode().dependsOn(previous);
+            InitNode right = new InitNode().dependsOn(previous);
+            previous = new InitNode().dependsOn(left, right);
+            nodes.add(left);
+            nodes.add(right);
+            nodes.add(previous);
+        }
+        final AtomicInteger cancelledCount = new AtomicInteger();
+        for (InitNode node : nodes) {
+            node.setEventListener(new EmptyNodeEventListener() {
+                @Override
+                public void onCancelled(InitNode node) {
+                    cancelledCount.incrementAndGet();
+                }
+            });
+        }
+
+        // When
+        nodes.get(0).cancel();
+        nodes.get(0).cancel();
+
+        // Then
+        assertThat(cancelledCount.get()).isEqualTo(nodes.size());
+        for (InitNode node : nodes) {
+            assertThat(node.cancelled()).isTrue();
+            assertThat(node.finished()).isTrue();
+        }
+    }
+
+    @Test
+    public void test_InitNode_Cancel_Wide_Fan_Out() throws Exception {
+
+        // Given
+        final List<InitNode> nodes = new ArrayList<>();
+        InitNode nodeError = new InitNode(new InitLoaderTest.WaitTaskError(0, "Error"));
+        for (int i = 0; i < 50000; i++) {
+            InitNode node = new InitNode().dependsOn(nodeError);
+            nodes.add(node);
+            nodes.add(new InitNode().dependsOn(node));
+        }
+        nodes.add(nodeError);
+        InitLoaderCallback callback = mock(InitLoaderCallback.class);
+
+        // When
+        initLoader = new InitLoader(4);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.load(callback, nodes);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(callback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        assertThat(nodeError.error()).isTrue();
+        for (InitNode node : nodes.subList(0, nodes.size() - 1)) {
+            assertThat(node.cancelled()).isTrue();
+            assertThat(node.success()).isFalse();
+            assertThat(node.finished()).isTrue();
+        }
+    }
+
+    @Test
+    public void test_InitNode_WhenDone() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(runnableA);
+        InitNode nodeB = new InitNode(runnableB);
+        nodeA.dependsOn(nodeB);
+        NodeDoneListener listenerA = mock(NodeDoneListener.class);
+        NodeDoneListener listenerB = mock(NodeDoneListener.class);
+        nodeA.whenDone(listenerA);
+        nodeB.whenDone(listenerB);
+
+        // When
+        initLoader = new InitLoader(3);
+        initLoader.load(loaderCallback, nodeA, nodeB);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(listenerB, times(1)).onNodeDone(nodeB);
+        verify(listenerA, times(1)).onNodeDone(nodeA);
+        InOrder inOrder = inOrder(listenerA, listenerB);
+        inOrder.verify(listenerB).onNodeDone(nodeB);
+        inOrder.verify(listenerA).onNodeDone(nodeA);
+
+        // Listener added to a finished node is called immediately
+        NodeDoneListener lateListener = mock(NodeDoneListener.class);
+        nodeA.whenDone(lateListener);
+        verify(lateListener, times(1)).onNodeDone(nodeA);
+    }
+
+    @Test
+    public void test_InitNode_WhenDone_Cancelled() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(runnableA);
+        InitNode nodeB = new InitNode(runnableB);
+        nodeA.dependsOn(nodeB);
+        NodeDoneListener listenerA = mock(NodeDoneListener.class);
+        nodeA.whenDone(listenerA);
+
+        // When
+        nodeB.cancel();
+
+        // Then
+        assertThat(nodeA.cancelled()).isTrue();
+        verify(listenerA, times(1)).onNodeDone(nodeA);
+    }
+
+    @Test
+    public void test_Load_Completion_Empty_Graph() throws Exception {
+
+        // When
+        initLoader = new InitLoader(1);
+        initLoader.load(loaderCallback);
+        initLoader.awaitTasks();
+
+        // Then
+        verify(loaderCallback, times(1)).onFinished();
+        verify(loaderCallback, times(0)).onCancelled();
+    }
+
+    @Test
+    public void test_Borrowed_Executor_Not_Shutdown() throws Exception {
+
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        InitNode nodeA = new InitNode(runnableA);
+        InitNode nodeB = new InitNode(runnableB);
+        InitNode nodeError = new InitNode(new InitLoaderTest.WaitTaskError(0, "Error"));
+        nodeA.dependsOn(nodeB);
+
+        // When
+        initLoader = new InitLoader(executor);
+        initLoader.load(loaderCallback, nodeA, nodeB, nodeError);
+        initLoader.awaitTermination();
+
+        // Then
+        verify(runnableA, times(1)).run();
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onNodeError(argThat(nodeExecutionError(nodeError)));
+        assertThat(executor.isShutdown()).isFalse();
+
+        try {
+            initLoader.retry();
+            fail("Should fail, calling retry on terminated InitLoader");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).isNotEmpty();
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void test_Borrowed_Executor_Interrupt() throws Exception {
+
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        InitNode nodeA = new InitNode(runnableA);
+        Runnable runnableLong = spy(new WaitTask("Long", 10000));
+        InitNode nodeLong = new InitNode(runnableLong);
+        nodeA.dependsOn(nodeLong);
+
+        // When
+        initLoader = new InitLoader(executor);
+        initLoader.setScheduling(Scheduling.ON_READY);
+        initLoader.load(loaderCallback, nodeA, nodeLong);
+        verify(runnableLong, timeout(VERIFY_TIMEOUT)).run();
+        initLoader.interrupt();
+        initLoader.awaitTermination();
+
+        // Then
+        assertThat(nodeLong.error()).isTrue();
+        assertThat(nodeA.cancelled()).isTrue();
+        verify(runnableA, times(0)).run();
+        verify(loaderCallback, timeout(VERIFY_TIMEOUT).times(1)).onCancelled();
+        assertThat(executor.isShutdown()).isFalse();
+
+        // Pool threads are still usable
+        Runnable runnable = mock(Runnable.class);
+        executor.submit(runnable).get();
+        verify(runnable).run();
+        executor.shutdown();
+    }
+
     @Test
     public void test_InitNode_NullCallback_Allowed() throws Exception {
 
@@ -284,30 +489,4 @@ public class InitNodeTest {
             assertThat(e.getMessage()).isNotEmpty();
         }
     }
-
-
-    private class LogInitLoaderCallback implements InitLoaderCallback {
-
-        @Override
-        public void onFinished() {
-            System.out.println("---> onFinished()");
-        }
-
-        @Override
-        public void onNodeError(NodeExecutionError nodeError) {
-            System.out.println("---> onNodeError()");
-            System.out.print("---> "); nodeError.printStackTrace(System.out);
-        }
-
-        @Override
-        public void onError(Throwable error) {
-            System.out.println("---> onError()");
-            System.out.print("---> "); error.printStackTrace(System.out);
-        }
-
-        @Override
-        public void onCancelled() {
-            System.out.println("---> onCancelled()");
-        }
-    }
-}
\ No newline at end of file
+}
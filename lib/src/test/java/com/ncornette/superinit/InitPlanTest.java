@@ -0,0 +1,284 @@
+package com.ncornette.superinit;
+
+import com.ncornette.superinit.InitLoaderTest.WaitTask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class InitPlanTest {
+
+    private static final long VERIFY_TIMEOUT = 3000;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test_Plan_Topological_Order() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(new CountTask());
+        InitNode nodeB = new InitNode(new CountTask());
+        InitNode nodeC = new InitNode(new CountTask());
+        nodeC.dependsOn(nodeB);
+        nodeB.dependsOn(nodeA);
+
+        // When
+        InitPlan plan = InitPlan.compile(nodeC);
+
+        // Then
+        assertThat(plan.size()).isEqualTo(3);
+        assertThat(plan.nodes()).containsExactly(nodeA, nodeB, nodeC);
+    }
+
+    @Test
+    public void test_Plan_Circular_Dependency() throws Exception {
+
+        // Given
+        InitNode nodeA = new InitNode(new CountTask());
+        InitNode nodeB = new InitNode(new CountTask());
+        InitNode nodeC = new InitNode(new CountTask());
+        nodeB.dependsOn(nodeA);
+        nodeC.dependsOn(nodeB);
+        nodeA.dependsOn(nodeC);
+
+        // When
+        try {
+            InitPlan.compile(nodeA, nodeB, nodeC);
+            fail("Should throw IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Then
+            assertThat(e).hasMessageContaining("Circular Dependency");
+        }
+    }
+
+    @Test
+    public void test_Plan_Execute_Many_Times() throws Exception {
+
+        // Given
+        final List<Integer> order = new ArrayList<>();
+        InitNode nodeA = new InitNode(new AddTask(order, 1));
+        InitNode nodeB = new InitNode(new AddTask(order, 2));
+        InitNode nodeC = new InitNode(new AddTask(order, 3));
+        nodeC.dependsOn(nodeB);
+        nodeB.dependsOn(nodeA);
+        InitPlan plan = InitPlan.compile(nodeA, nodeB, nodeC);
+
+        for (int i = 0; i < 3; i++) {
+            order.clear();
+
+            // When
+            LoadResult result = plan.execute(executor).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+            // Then
+            assertThat(result.success()).isTrue();
+            assertThat(order).containsExactly(1, 2, 3);
+        }
+
+        // Node objects are not modified by executions
+        assertThat(nodeA.finished()).isFalse();
+        assertThat(nodeC.finished()).isFalse();
+    }
+
+    @Test
+    public void test_Plan_Execute_Concurrently() throws Exception {
+
+        // Given
+        CountTask countTask = new CountTask();
+        List<InitNode> nodes = new ArrayList<>();
+        InitNode root = new InitNode(countTask);
+        nodes.add(root);
+        for (int i = 0; i < 50; i++) {
+            InitNode node = new InitNode(countTask);
+            node.dependsOn(root);
+            nodes.add(node);
+        }
+        InitPlan plan = InitPlan.compile(nodes);
+
+        // When
+        List<LoadFuture> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(plan.execute(executor));
+        }
+
+        // Then
+        for (LoadFuture future : futures) {
+            assertThat(future.get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS).success()).isTrue();
+        }
+        assertThat(countTask.count.get()).isEqualTo(20 * 51);
+    }
+
+    @Test
+    public void test_Plan_Node_Error() throws Exception {
+
+        // Given
+        InitLoaderCallback callback = mock(InitLoaderCallback.class);
+        InitNode nodeA = new InitNode(new CountTask());
+        final InitNode nodeB = new InitNode(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Error in B");
+            }
+        });
+        InitNode nodeC = new InitNode(new CountTask());
+        InitNode nodeD = new InitNode(new CountTask());
+        nodeB.dependsOn(nodeA);
+        nodeC.dependsOn(nodeB);
+        nodeD.dependsOn(nodeC);
+        InitPlan plan = InitPlan.compile(nodeD);
+
+        // When
+        LoadResult result = plan.execute(executor, callback).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(result.success()).isFalse();
+        assertThat(result.status(nodeA)).isEqualTo(LoadResult.Status.SUCCESS);
+        assertThat(result.status(nodeB)).isEqualTo(LoadResult.Status.ERROR);
+        assertThat(result.nodes(LoadResult.Status.CANCELLED)).containsExactly(nodeC, nodeD);
+        verify(callback, timeout(VERIFY_TIMEOUT)).onNodeError(any(NodeExecutionError.class));
+        verify(callback, timeout(VERIFY_TIMEOUT)).onCancelled();
+        verify(callback, never()).onFinished();
+
+        // Next execution starts from a clean state
+        assertThat(plan.execute(executor).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS).status(nodeB))
+                .isEqualTo(LoadResult.Status.ERROR);
+    }
+
+    @Test
+    public void test_Plan_Long_Chain() throws Exception {
+
+        // Given
+        InitNode previous = null;
+        List<InitNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            InitNode node = new InitNode(new CountTask());
+            if (previous != null) {
+                node.dependsOn(previous);
+            }
+            nodes.add(node);
+            previous = node;
+        }
+        InitPlan plan = InitPlan.compile(nodes);
+
+        // When
+        executor.shutdown();
+        LoadResult result = plan.execute(executor).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(result.nodes(LoadResult.Status.CANCELLED)).hasSize(100000);
+    }
+
+    @Test
+    public void test_Plan_Retry() throws Exception {
+
+        // Given
+        final AtomicInteger attempts = new AtomicInteger();
+        InitNode nodeA = new InitNode(new Runnable() {
+            @Override
+            public void run() {
+                if (attempts.incrementAndGet() % 3 != 0) {
+                    throw new IllegalStateException("Error in A");
+                }
+            }
+        }).retryPolicy(RetryPolicy.maxAttempts(3).backoff(10, TimeUnit.MILLISECONDS));
+        CountTask countTask = new CountTask();
+        InitNode nodeB = new InitNode(countTask).dependsOn(nodeA);
+        InitPlan plan = InitPlan.compile(nodeB);
+
+        // Attempts are counted per execution
+        for (int i = 0; i < 2; i++) {
+
+            // When
+            LoadResult result = plan.execute(executor).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+            // Then
+            assertThat(result.success()).isTrue();
+        }
+        assertThat(attempts.get()).isEqualTo(6);
+        assertThat(countTask.count.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_Plan_Node_Timeout() throws Exception {
+
+        // Given
+        InitLoaderCallback callback = mock(InitLoaderCallback.class);
+        InitNode nodeSlow = new InitNode(new WaitTask("Slow", 10000)).timeout(100, TimeUnit.MILLISECONDS);
+        CountTask countTask = new CountTask();
+        InitNode nodeA = new InitNode(countTask).dependsOn(nodeSlow);
+        InitNode nodeB = new InitNode(new CountTask()).timeout(5, TimeUnit.SECONDS);
+        InitPlan plan = InitPlan.compile(nodeA, nodeB);
+
+        // When
+        long start = System.nanoTime();
+        LoadResult result = plan.execute(executor, callback).get(VERIFY_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(VERIFY_TIMEOUT);
+        assertThat(result.status(nodeSlow)).isEqualTo(LoadResult.Status.ERROR);
+        assertThat(result.status(nodeA)).isEqualTo(LoadResult.Status.CANCELLED);
+        assertThat(result.status(nodeB)).isEqualTo(LoadResult.Status.SUCCESS);
+        assertThat(countTask.count.get()).isEqualTo(0);
+        verify(callback, timeout(VERIFY_TIMEOUT)).onNodeError(argThat(new ArgumentMatcher<NodeExecutionError>() {
+            @Override
+            public boolean matches(Object argument) {
+                return argument instanceof NodeExecutionError
+                        && ((NodeExecutionError) argument).getCause() instanceof TimeoutException;
+            }
+        }));
+        verify(callback, timeout(VERIFY_TIMEOUT)).onCancelled();
+    }
+
+    private static class CountTask implements Runnable {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void run() {
+            count.incrementAndGet();
+        }
+    }
+
+    private static class AddTask implements Runnable {
+
+        private final List<Integer> values;
+        private final int value;
+
+        AddTask(List<Integer> values, int value) {
+            this.values = values;
+            this.value = value;
+        }
+
+        @Override
+        public void run() {
+            values.add(value);
+        }
+    }
+}